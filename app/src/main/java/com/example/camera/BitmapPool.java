@@ -0,0 +1,143 @@
+package com.example.camera;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 按分配字节数索引的 ARGB_8888 位图复用池
+ * 解码时通过 BitmapFactory.Options.inBitmap 复用，合成时通过 reconfigure 复用，
+ * 避免连拍时反复分配整帧位图。
+ */
+public class BitmapPool {
+
+    private static final String TAG = "BitmapPool";
+    private static final int BYTES_PER_PIXEL = 4;
+
+    // 超过请求大小该倍数的位图不复用
+    private static final int MAX_SLACK = 2;
+
+    private final TreeMap<Integer, ArrayDeque<Bitmap>> bitmaps = new TreeMap<>();
+    private final long maxPooledBytes;
+    private long pooledBytes;
+
+    public BitmapPool(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+    }
+
+    /**
+     * 取出 width × height 的可变位图，内容未清零
+     */
+    public Bitmap acquire(int width, int height) {
+        Bitmap bitmap = take((long) width * height * BYTES_PER_PIXEL);
+        if (bitmap != null) {
+            try {
+                bitmap.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+                return bitmap;
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "reconfigure failed, allocating new bitmap", e);
+                bitmap.recycle();
+            }
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * 解码 JPEG 等压缩数据，优先复用池中的位图作为 inBitmap
+     */
+    public Bitmap decodeByteArray(byte[] data) {
+        return decodeByteArray(data, 0);
+    }
+
+    /**
+     * 降采样解码：选取最大的 2 的幂 inSampleSize，使解码结果的长边不小于 targetSize。
+     * targetSize ≤ 0 时按原尺寸解码。
+     */
+    public Bitmap decodeByteArray(byte[] data, int targetSize) {
+        BitmapFactory.Options opts = new BitmapFactory.Options();
+        opts.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, opts);
+        if (opts.outWidth <= 0 || opts.outHeight <= 0) return null;
+
+        int sampleSize = calculateInSampleSize(opts.outWidth, opts.outHeight, targetSize);
+        long sampledWidth = (opts.outWidth + sampleSize - 1) / sampleSize;
+        long sampledHeight = (opts.outHeight + sampleSize - 1) / sampleSize;
+
+        opts.inJustDecodeBounds = false;
+        opts.inSampleSize = sampleSize;
+        opts.inMutable = true;
+        opts.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        opts.inBitmap = take(sampledWidth * sampledHeight * BYTES_PER_PIXEL);
+        try {
+            return BitmapFactory.decodeByteArray(data, 0, data.length, opts);
+        } catch (IllegalArgumentException e) {
+            // 复用的位图不满足解码要求，改为新分配
+            if (opts.inBitmap == null) throw e;
+            Log.w(TAG, "inBitmap rejected, decoding without reuse", e);
+            opts.inBitmap.recycle();
+            opts.inBitmap = null;
+            return BitmapFactory.decodeByteArray(data, 0, data.length, opts);
+        }
+    }
+
+    /**
+     * 长边不小于 targetSize 的最大 2 的幂降采样倍数
+     */
+    public static int calculateInSampleSize(int width, int height, int targetSize) {
+        int sampleSize = 1;
+        if (targetSize <= 0) return sampleSize;
+        int longSide = Math.max(width, height);
+        while (longSide / (sampleSize * 2) >= targetSize) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * 归还不再使用（不再显示）的位图；超出容量上限时回收最大的位图
+     */
+    public void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) return;
+        int bytes = bitmap.getAllocationByteCount();
+        synchronized (this) {
+            if (bytes <= maxPooledBytes) {
+                while (pooledBytes + bytes > maxPooledBytes && !bitmaps.isEmpty()) {
+                    Bitmap evicted = pop(bitmaps.lastEntry());
+                    pooledBytes -= evicted.getAllocationByteCount();
+                    evicted.recycle();
+                }
+                bitmaps.computeIfAbsent(bytes, k -> new ArrayDeque<>()).push(bitmap);
+                pooledBytes += bytes;
+                return;
+            }
+        }
+        bitmap.recycle();
+    }
+
+    public synchronized void clear() {
+        for (ArrayDeque<Bitmap> queue : bitmaps.values()) {
+            for (Bitmap bitmap : queue) bitmap.recycle();
+        }
+        bitmaps.clear();
+        pooledBytes = 0;
+    }
+
+    private synchronized Bitmap take(long minBytes) {
+        if (minBytes > Integer.MAX_VALUE) return null;
+        Map.Entry<Integer, ArrayDeque<Bitmap>> entry = bitmaps.ceilingEntry((int) minBytes);
+        if (entry == null || entry.getKey() > minBytes * MAX_SLACK) return null;
+        Bitmap bitmap = pop(entry);
+        pooledBytes -= bitmap.getAllocationByteCount();
+        return bitmap;
+    }
+
+    private Bitmap pop(Map.Entry<Integer, ArrayDeque<Bitmap>> entry) {
+        Bitmap bitmap = entry.getValue().pop();
+        if (entry.getValue().isEmpty()) bitmaps.remove(entry.getKey());
+        return bitmap;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.camera;
+
+import android.hardware.camera2.CaptureRequest;
+import android.util.Log;
+
+import androidx.camera.camera2.interop.Camera2CameraControl;
+import androidx.camera.camera2.interop.CaptureRequestOptions;
+import androidx.camera.camera2.interop.ExperimentalCamera2Interop;
+import androidx.camera.core.Camera;
+
+import com.example.camera.imaging.LatestValueChannel;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * 手动曝光参数下发通道（最新值优先）
+ * 每次 setCaptureRequestOptions 都会让 HAL 重建重复请求，拖动滑条时逐次下发会使预览卡顿。
+ * 本通道同一时刻最多只有一个请求在途：在途期间提交的参数只保留最新一组，
+ * 上一个请求的 ListenableFuture 完成后再下发。排队与合并逻辑见 LatestValueChannel。
+ */
+@ExperimentalCamera2Interop
+public class CameraParameterChannel {
+
+    private static final String TAG = "CameraParamChannel";
+
+    private final LatestValueChannel<CaptureRequestOptions> channel;
+
+    /**
+     * @param callbackExecutor 请求完成与空闲回调的执行线程
+     */
+    public CameraParameterChannel(Executor callbackExecutor) {
+        channel = new LatestValueChannel<>(callbackExecutor);
+    }
+
+    /**
+     * 重新绑定相机后调用；尚未下发的参数发往新的相机
+     */
+    public void setCamera(Camera camera) {
+        if (camera == null) {
+            channel.setSender(null);
+            return;
+        }
+        Camera2CameraControl control = Camera2CameraControl.from(camera.getCameraControl());
+        channel.setSender((options, completion) -> {
+            ListenableFuture<Void> future;
+            try {
+                future = control.setCaptureRequestOptions(options);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "setCaptureRequestOptions failed", e);
+                throw e;
+            }
+            future.addListener(() -> completion.onComplete(succeeded(future)), Runnable::run);
+        });
+    }
+
+    /**
+     * 提交一组参数，ISO / 曝光时间 ≤ 0 表示不设置
+     * @param aeMode CaptureRequest.CONTROL_AE_MODE_*
+     */
+    public void submit(int aeMode, int iso, long exposureNs) {
+        CaptureRequestOptions.Builder builder = new CaptureRequestOptions.Builder()
+                .setCaptureRequestOption(CaptureRequest.CONTROL_AE_MODE, aeMode);
+        if (iso > 0)
+            builder.setCaptureRequestOption(CaptureRequest.SENSOR_SENSITIVITY, iso);
+        if (exposureNs > 0)
+            builder.setCaptureRequestOption(CaptureRequest.SENSOR_EXPOSURE_TIME, exposureNs);
+        channel.submit(builder.build());
+    }
+
+    /**
+     * 所有已提交的参数都处理完后执行 action（在 callbackExecutor 上），
+     * 例如包围曝光在参数生效后再拍照；applied 为 false 表示参数未生效（下发失败或没有绑定相机）
+     */
+    public void runWhenIdle(LatestValueChannel.IdleAction action) {
+        channel.runWhenIdle(action);
+    }
+
+    /** 没有请求在途，也没有等待下发的参数 */
+    public boolean isIdle() {
+        return channel.isIdle();
+    }
+
+    private static boolean succeeded(ListenableFuture<Void> future) {
+        try {
+            future.get();
+            return true;
+        } catch (ExecutionException | CancellationException e) {
+            // 相机关闭或被重新绑定时请求会被取消，不影响后续参数
+            Log.w(TAG, "Capture request options not applied: " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    /** 提交次数 */
+    public long getSubmittedCount() {
+        return channel.getSubmittedCount();
+    }
+
+    /** 实际下发给相机的次数 */
+    public long getAppliedCount() {
+        return channel.getSentCount();
+    }
+
+    /** 在途期间被更新值覆盖、未下发的次数 */
+    public long getCoalescedCount() {
+        return channel.getCoalescedCount();
+    }
+
+    /** 下发失败或未生效（取消）的次数 */
+    public long getFailedCount() {
+        return channel.getFailedCount();
+    }
+
+    @Override
+    public String toString() {
+        return channel.toString();
+    }
+}
@@ -3,19 +3,19 @@ package com.example.camera;
 import android.graphics.SurfaceTexture;
 import android.opengl.GLES11Ext;
 import android.opengl.GLES20;
-import android.opengl.GLSurfaceView;
+import android.opengl.GLES30;
+import android.os.SystemClock;
 import android.util.Log;
 
+import com.example.camera.imaging.ColorMap;
+
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 
-import javax.microedition.khronos.egl.EGLConfig;
-import javax.microedition.khronos.opengles.GL10;
-
 import android.opengl.Matrix;
 
-public class CameraRenderer implements GLSurfaceView.Renderer {
+public class CameraRenderer implements GLRenderThread.Renderer {
 
     private static final String TAG = "CameraRenderer";
 
@@ -30,37 +30,65 @@ public class CameraRenderer implements GLSurfaceView.Renderer {
             "    vTexCoord = (uTexMatrix * vec4(aTexCoord, 0.0, 1.0)).xy;\n" +
             "}\n";
 
-    // 片段着色器：将灰度映射为伪彩色（蓝→青→绿→黄→红）
+    // 片段着色器：灰度作为下标在 256×1 查找表纹理中取色（一次采样，无分支）
+    // 灰度系数与 CPU 端 LumaHistogram.luma 的定点系数 (77, 150, 29) / 256 一致
     private static final String FRAGMENT_SHADER =
             "#extension GL_OES_EGL_image_external : require\n" +
+            "#ifdef GL_FRAGMENT_PRECISION_HIGH\n" +
+            "precision highp float;\n" +
+            "#else\n" +
             "precision mediump float;\n" +
+            "#endif\n" +
             "uniform samplerExternalOES uTexture;\n" +
+            "uniform sampler2D uColorLut;\n" +
             "varying vec2 vTexCoord;\n" +
             "uniform float uBrightness;\n" +   // 亮度增益 [0.5, 2.0]
             "void main() {\n" +
             "    vec4 color = texture2D(uTexture, vTexCoord);\n" +
             // 亮度增益
             "    vec3 boosted = clamp(color.rgb * uBrightness, 0.0, 1.0);\n" +
-            // 转灰度
-            "    float gray = dot(boosted, vec3(0.299, 0.587, 0.114));\n" +
-            // 伪彩色映射：4段线性插值
-            "    vec3 pseudo;\n" +
-            "    if (gray < 0.25) {\n" +
-            "        float t = gray / 0.25;\n" +
-            "        pseudo = mix(vec3(0.0, 0.0, 0.0), vec3(0.0, 0.0, 1.0), t);\n" +
-            "    } else if (gray < 0.5) {\n" +
-            "        float t = (gray - 0.25) / 0.25;\n" +
-            "        pseudo = mix(vec3(0.0, 0.0, 1.0), vec3(0.0, 1.0, 0.0), t);\n" +
-            "    } else if (gray < 0.75) {\n" +
-            "        float t = (gray - 0.5) / 0.25;\n" +
-            "        pseudo = mix(vec3(0.0, 1.0, 0.0), vec3(1.0, 1.0, 0.0), t);\n" +
-            "    } else {\n" +
-            "        float t = (gray - 0.75) / 0.25;\n" +
-            "        pseudo = mix(vec3(1.0, 1.0, 0.0), vec3(1.0, 0.0, 0.0), t);\n" +
-            "    }\n" +
-            "    gl_FragColor = vec4(pseudo, 1.0);\n" +
+            // 转灰度下标 [0, 255]，取纹素中心
+            "    float index = floor(dot(boosted, vec3(77.0, 150.0, 29.0) / 256.0) * 255.0 + 0.5);\n" +
+            "    gl_FragColor = texture2D(uColorLut, vec2((index + 0.5) / 256.0, 0.5));\n" +
+            "}\n";
+
+    // ES 3.0 版本：顶点/纹理坐标来自 VAO，逐帧 uniform 放在 UBO（两个着色器共用同一块定义）
+    private static final String FRAME_UNIFORMS_ES3 =
+            "layout(std140) uniform FrameUniforms {\n" +
+            "    mat4 uTexMatrix;\n" +
+            "    float uBrightness;\n" +
+            "};\n";
+
+    private static final String VERTEX_SHADER_ES3 =
+            "#version 300 es\n" +
+            "layout(location = 0) in vec4 aPosition;\n" +
+            "layout(location = 1) in vec2 aTexCoord;\n" +
+            FRAME_UNIFORMS_ES3 +
+            "out vec2 vTexCoord;\n" +
+            "void main() {\n" +
+            "    gl_Position = aPosition;\n" +
+            "    vTexCoord = (uTexMatrix * vec4(aTexCoord, 0.0, 1.0)).xy;\n" +
+            "}\n";
+
+    private static final String FRAGMENT_SHADER_ES3 =
+            "#version 300 es\n" +
+            "#extension GL_OES_EGL_image_external_essl3 : require\n" +
+            "precision highp float;\n" +
+            "uniform samplerExternalOES uTexture;\n" +
+            "uniform sampler2D uColorLut;\n" +
+            FRAME_UNIFORMS_ES3 +
+            "in vec2 vTexCoord;\n" +
+            "out vec4 fragColor;\n" +
+            "void main() {\n" +
+            "    vec3 boosted = clamp(texture(uTexture, vTexCoord).rgb * uBrightness, 0.0, 1.0);\n" +
+            "    float index = floor(dot(boosted, vec3(77.0, 150.0, 29.0) / 256.0) * 255.0 + 0.5);\n" +
+            "    fragColor = texture(uColorLut, vec2((index + 0.5) / 256.0, 0.5));\n" +
             "}\n";
 
+    // UBO 布局（std140）：mat4 占 16 个 float，float 补齐到 vec4
+    private static final int UNIFORM_FLOATS = 20;
+    private static final int UNIFORM_BINDING = 0;
+
     // 全屏四边形顶点（NDC坐标，运行时根据宽高比动态更新）
     private float[] vertices = {
             -1.0f, -1.0f,
@@ -80,27 +108,62 @@ public class CameraRenderer implements GLSurfaceView.Renderer {
     private FloatBuffer vertexBuffer;
     private FloatBuffer texCoordBuffer;
 
+    // ES 3.0 路径：交错顶点 VBO + VAO，逐帧 uniform 的 UBO；上下文不支持时退回 ES 2.0 客户端数组
+    private boolean es3;
+    private final int[] vao = new int[1];
+    private final int[] vbo = new int[1];
+    private final int[] ubo = new int[1];
+    private FloatBuffer quadBuffer;       // x, y, u, v × 4
+    private FloatBuffer uniformBuffer;
+    private float uploadedBrightness = Float.NaN;
+    private boolean uniformsDirty = true;
+
     private int program;
     private int aPositionHandle;
     private int aTexCoordHandle;
     private int uTextureHandle;
+    private int uColorLutHandle;
     private int uBrightnessHandle;
     private int uTexMatrixHandle;
 
     // SurfaceTexture 变换矩阵（修正方向）
     private final float[] texMatrix = new float[16];
 
-    // view 和相机的宽高比（用于 centerCrop）
-    private volatile float viewAspect = 1.0f;
+    // 输出和相机的宽高比（用于 centerCrop），顶点按当前输出的宽高比计算
+    private float viewAspect = 1.0f;
     private volatile float cameraAspect = 4f / 3f; // 默认 4:3，bindCameraPreview 后更新
     private volatile boolean aspectDirty = false;
 
     private int[] cameraTextureId = new int[1];
     private SurfaceTexture surfaceTexture;
 
+    // 伪彩色查找表纹理；新的色表由主线程设置，在 GL 线程下一帧上传
+    private final int[] lutTextureId = new int[1];
+    private ByteBuffer lutBuffer;
+    private volatile ColorMap colorMap = ColorMap.isolux();
+    private volatile boolean lutDirty = true;
+
     private OnSurfaceTextureAvailableListener listener;
     private volatile float brightness = 1.0f; // 亮度增益，由主线程设置
 
+    // 预览测光（离屏缩小 + 回读），视口尺寸（主输出）用于测光后恢复
+    private final LumaMeter lumaMeter = new LumaMeter();
+    private int viewWidth;
+    private int viewHeight;
+
+    // 多通道滤镜图（平滑、等照度线、区域高亮），可选通道全关时走单通道路径
+    private final FilterGraph filterGraph = new FilterGraph();
+
+    // 自适应预览分辨率：每 FRAME_COST_SAMPLE_INTERVAL 个新帧以 glFinish 测一次完整渲染耗时
+    private static final int FRAME_COST_SAMPLE_INTERVAL = 30;
+    private PreviewResolutionPolicy resolutionPolicy;
+    private int framesSinceCostSample;
+    private boolean sampleCost;
+    private long frameStartNs;
+
+    // 按需渲染调度（由相机帧驱动），为 null 时每次绘制都更新相机帧
+    private FrameScheduler frameScheduler;
+
     public interface OnSurfaceTextureAvailableListener {
         void onSurfaceTextureAvailable(SurfaceTexture surfaceTexture);
     }
@@ -109,8 +172,59 @@ public class CameraRenderer implements GLSurfaceView.Renderer {
         this.listener = l;
     }
 
+    /**
+     * 预览亮度测光结果回调（GL 线程），intervalMs ≤ 0 时停止测光
+     */
+    public void setOnLumaMeteredListener(LumaMeter.OnLumaMeteredListener listener, long intervalMs) {
+        lumaMeter.setListener(listener);
+        lumaMeter.setIntervalMs(intervalMs);
+    }
+
+    /** 设置后定期上报单帧渲染耗时，为 null 时不测量 */
+    public void setResolutionPolicy(PreviewResolutionPolicy resolutionPolicy) {
+        this.resolutionPolicy = resolutionPolicy;
+    }
+
+    public void setFrameScheduler(FrameScheduler frameScheduler) {
+        this.frameScheduler = frameScheduler;
+    }
+
     public void setBrightness(float brightness) {
+        if (this.brightness == brightness) return;
         this.brightness = brightness;
+        invalidate();
+    }
+
+    /**
+     * 切换预览色表，与拍照结果使用同一张查找表（可在任意线程调用）
+     */
+    public void setColorMap(ColorMap colorMap) {
+        this.colorMap = colorMap;
+        filterGraph.setBands(colorMap.getBands());
+        lutDirty = true;
+        invalidate();
+    }
+
+    public ColorMap getColorMap() {
+        return colorMap;
+    }
+
+    /**
+     * 启用或关闭预览滤镜通道（FilterGraph.PASS_*，可在任意线程调用）
+     */
+    public void setFilterEnabled(String pass, boolean enabled) {
+        filterGraph.setEnabled(pass, enabled);
+        invalidate();
+    }
+
+    public boolean isFilterEnabled(String pass) {
+        return filterGraph.isEnabled(pass);
+    }
+
+    /** 区域高亮的灰度范围，取值 0..1 */
+    public void setHighlightRange(float low, float high) {
+        filterGraph.setHighlightRange(low, high);
+        invalidate();
     }
 
     /** 由 MainActivity 在 bindCameraPreview 后调用，传入相机分辨率 */
@@ -118,10 +232,16 @@ public class CameraRenderer implements GLSurfaceView.Renderer {
         // 后置相机传感器通常是横向的，竖屏时实际输出宽高需交换
         cameraAspect = (float) camWidth / camHeight;
         aspectDirty = true;
+        invalidate();
+    }
+
+    /** uniform 或几何变化后请求重绘（按需渲染时不会自动刷新） */
+    private void invalidate() {
+        if (frameScheduler != null) frameScheduler.requestRedraw();
     }
 
     @Override
-    public void onSurfaceCreated(GL10 gl, EGLConfig config) {
+    public void onContextCreated(int glVersion) {
         GLES20.glClearColor(0f, 0f, 0f, 1f);
 
         // 创建 OES 外部纹理（用于接收相机帧）
@@ -132,24 +252,50 @@ public class CameraRenderer implements GLSurfaceView.Renderer {
         GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
         GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
 
+        // 创建 256×1 查找表纹理：最近邻采样，避免相邻表项被插值
+        GLES20.glGenTextures(1, lutTextureId, 0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, lutTextureId[0]);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_NEAREST);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_NEAREST);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+        lutBuffer = ByteBuffer.allocateDirect(ColorMap.LUT_SIZE * 4).order(ByteOrder.nativeOrder());
+        lutDirty = true;   // 上下文重建后需重新上传
+
         // 创建 SurfaceTexture 并通知主线程
         surfaceTexture = new SurfaceTexture(cameraTextureId[0]);
+        if (frameScheduler != null) {
+            surfaceTexture.setOnFrameAvailableListener(frameScheduler);
+        }
         if (listener != null) {
             listener.onSurfaceTextureAvailable(surfaceTexture);
         }
 
-        // 编译着色器程序
+        // 初始化单位矩阵
+        Matrix.setIdentityM(texMatrix, 0);
+
+        // 按上下文版本选择渲染路径（EglCore 优先创建 ES 3.0 上下文）
+        es3 = glVersion >= 3 && setupEs3();
+        if (!es3) {
+            setupEs2();
+        }
+        Log.d(TAG, "GL_VERSION: " + GLES20.glGetString(GLES20.GL_VERSION) + ", ES 3.0 path: " + es3);
+
+        // 预览测光：ES 3.0 上下文使用 PBO 异步回读
+        lumaMeter.init(es3);
+        filterGraph.init();
+    }
+
+    /** ES 2.0：客户端顶点数组，逐帧设置 uniform 和属性指针 */
+    private void setupEs2() {
         program = ShaderUtils.createProgram(VERTEX_SHADER, FRAGMENT_SHADER);
         aPositionHandle   = GLES20.glGetAttribLocation(program, "aPosition");
         aTexCoordHandle   = GLES20.glGetAttribLocation(program, "aTexCoord");
         uTextureHandle    = GLES20.glGetUniformLocation(program, "uTexture");
+        uColorLutHandle   = GLES20.glGetUniformLocation(program, "uColorLut");
         uBrightnessHandle = GLES20.glGetUniformLocation(program, "uBrightness");
         uTexMatrixHandle  = GLES20.glGetUniformLocation(program, "uTexMatrix");
 
-        // 初始化单位矩阵
-        Matrix.setIdentityM(texMatrix, 0);
-
-        // 准备顶点缓冲区
         vertexBuffer = ByteBuffer.allocateDirect(vertices.length * 4)
                 .order(ByteOrder.nativeOrder()).asFloatBuffer();
         vertexBuffer.put(vertices).position(0);
@@ -159,11 +305,67 @@ public class CameraRenderer implements GLSurfaceView.Renderer {
         texCoordBuffer.put(TEX_COORDS).position(0);
     }
 
-    @Override
-    public void onSurfaceChanged(GL10 gl, int width, int height) {
-        GLES20.glViewport(0, 0, width, height);
-        viewAspect = (float) width / height;
-        aspectDirty = true;
+    /**
+     * ES 3.0：四边形放入 VBO 并由 VAO 记录属性布局，采样器单元在链接后设置一次，
+     * 逐帧只需在变换矩阵或亮度变化时更新 UBO
+     * @return false 表示着色器编译失败，调用方退回 ES 2.0 路径
+     */
+    private boolean setupEs3() {
+        program = ShaderUtils.createProgram(VERTEX_SHADER_ES3, FRAGMENT_SHADER_ES3);
+        if (program == 0) return false;
+
+        GLES30.glUseProgram(program);
+        GLES30.glUniform1i(GLES30.glGetUniformLocation(program, "uTexture"), 0);
+        GLES30.glUniform1i(GLES30.glGetUniformLocation(program, "uColorLut"), 1);
+        int blockIndex = GLES30.glGetUniformBlockIndex(program, "FrameUniforms");
+        GLES30.glUniformBlockBinding(program, blockIndex, UNIFORM_BINDING);
+
+        uniformBuffer = ByteBuffer.allocateDirect(UNIFORM_FLOATS * 4)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        GLES30.glGenBuffers(1, ubo, 0);
+        GLES30.glBindBuffer(GLES30.GL_UNIFORM_BUFFER, ubo[0]);
+        GLES30.glBufferData(GLES30.GL_UNIFORM_BUFFER, UNIFORM_FLOATS * 4, null, GLES30.GL_DYNAMIC_DRAW);
+        GLES30.glBindBuffer(GLES30.GL_UNIFORM_BUFFER, 0);
+        uniformsDirty = true;
+
+        quadBuffer = ByteBuffer.allocateDirect(16 * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        fillQuad();
+        GLES30.glGenVertexArrays(1, vao, 0);
+        GLES30.glGenBuffers(1, vbo, 0);
+        GLES30.glBindVertexArray(vao[0]);
+        GLES30.glBindBuffer(GLES30.GL_ARRAY_BUFFER, vbo[0]);
+        GLES30.glBufferData(GLES30.GL_ARRAY_BUFFER, 16 * 4, quadBuffer, GLES30.GL_STATIC_DRAW);
+        GLES30.glEnableVertexAttribArray(0);
+        GLES30.glVertexAttribPointer(0, 2, GLES30.GL_FLOAT, false, 16, 0);
+        GLES30.glEnableVertexAttribArray(1);
+        GLES30.glVertexAttribPointer(1, 2, GLES30.GL_FLOAT, false, 16, 8);
+        GLES30.glBindVertexArray(0);
+        GLES30.glBindBuffer(GLES30.GL_ARRAY_BUFFER, 0);
+        return true;
+    }
+
+    /** 将当前顶点和纹理坐标交错写入 quadBuffer */
+    private void fillQuad() {
+        quadBuffer.clear();
+        for (int i = 0; i < 4; i++) {
+            quadBuffer.put(vertices[i * 2]).put(vertices[i * 2 + 1])
+                    .put(TEX_COORDS[i * 2]).put(TEX_COORDS[i * 2 + 1]);
+        }
+        quadBuffer.position(0);
+    }
+
+    /** 输出尺寸变化：主输出同时决定测光后恢复的视口与滤镜 FBO 尺寸 */
+    private void setOutputSize(int width, int height, boolean primary) {
+        float aspect = (float) width / height;
+        if (aspect != viewAspect) {
+            viewAspect = aspect;
+            aspectDirty = true;
+        }
+        if (primary && (width != viewWidth || height != viewHeight)) {
+            viewWidth = width;
+            viewHeight = height;
+            filterGraph.resize(width, height);
+        }
     }
 
     /** 根据 view 和相机宽高比计算 centerCrop 顶点坐标 */
@@ -185,21 +387,134 @@ public class CameraRenderer implements GLSurfaceView.Renderer {
         vertices[4] = -scaleX; vertices[5] =  scaleY;
         vertices[6] =  scaleX; vertices[7] =  scaleY;
 
-        vertexBuffer.put(vertices).position(0);
+        if (es3) {
+            // 只在宽高比变化时更新 VBO
+            fillQuad();
+            GLES30.glBindBuffer(GLES30.GL_ARRAY_BUFFER, vbo[0]);
+            GLES30.glBufferSubData(GLES30.GL_ARRAY_BUFFER, 0, 16 * 4, quadBuffer);
+            GLES30.glBindBuffer(GLES30.GL_ARRAY_BUFFER, 0);
+        } else {
+            vertexBuffer.put(vertices).position(0);
+        }
+    }
+
+    /** 色表变化时重新上传查找表纹理（GL 线程） */
+    private void uploadLutIfNeeded() {
+        if (!lutDirty) return;
+        lutDirty = false;
+
+        lutBuffer.clear();
+        lutBuffer.put(colorMap.toRgbaBytes()).position(0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, lutTextureId[0]);
+        GLES20.glPixelStorei(GLES20.GL_UNPACK_ALIGNMENT, 1);
+        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, ColorMap.LUT_SIZE, 1, 0,
+                GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, lutBuffer);
     }
 
     @Override
-    public void onDrawFrame(GL10 gl) {
-        // 更新相机帧到 OES 纹理，并获取方向变换矩阵
-        if (surfaceTexture != null) {
+    public boolean onBeginFrame() {
+        // 有新帧时更新到 OES 纹理（所有输出共用），并获取方向变换矩阵；否则重绘上一帧
+        boolean newFrame = frameScheduler == null || frameScheduler.onDrawFrame();
+        sampleCost = newFrame && resolutionPolicy != null
+                && ++framesSinceCostSample >= FRAME_COST_SAMPLE_INTERVAL;
+        frameStartNs = sampleCost ? SystemClock.elapsedRealtimeNanos() : 0;
+        if (surfaceTexture != null && newFrame) {
             surfaceTexture.updateTexImage();
             surfaceTexture.getTransformMatrix(texMatrix);
+            uniformsDirty = true;
         }
+        uploadLutIfNeeded();
+        return newFrame;
+    }
 
+    @Override
+    public void onDrawFrame(int width, int height, boolean newFrame, boolean primary) {
         // 按需更新顶点（宽高比校正）
+        setOutputSize(width, height, primary);
         updateVerticesIfNeeded();
 
+        GLES20.glViewport(0, 0, width, height);
         GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+        if (filterGraph.isActive()) {
+            filterGraph.draw(cameraTextureId[0], texMatrix, brightness, lutTextureId[0], vertices, width, height);
+            uniformsDirty = true;   // 回到 ES 3.0 单通道路径时重新上传 UBO
+        } else if (es3) {
+            drawEs3();
+        } else {
+            drawEs2();
+        }
+
+        // 主输出的新帧按测光间隔测量亮度（不受亮度增益影响）
+        if (primary && newFrame) {
+            lumaMeter.meter(cameraTextureId[0], texMatrix, viewWidth, viewHeight);
+        }
+    }
+
+    @Override
+    public void onEndFrame(boolean newFrame) {
+        // 采样帧等待 GPU 完成，得到包含所有输出、滤镜通道与测光在内的完整耗时
+        if (sampleCost) {
+            GLES20.glFinish();
+            framesSinceCostSample = 0;
+            resolutionPolicy.onFrameCost(SystemClock.elapsedRealtimeNanos() - frameStartNs,
+                    SystemClock.elapsedRealtime());
+        }
+    }
+
+    @Override
+    public long getFrameTimestampNs() {
+        return surfaceTexture != null ? surfaceTexture.getTimestamp() : 0;
+    }
+
+    @Override
+    public void onContextDestroyed() {
+        lumaMeter.release();
+        filterGraph.release();
+        if (es3) {
+            GLES30.glDeleteVertexArrays(1, vao, 0);
+            GLES30.glDeleteBuffers(1, vbo, 0);
+            GLES30.glDeleteBuffers(1, ubo, 0);
+        }
+        if (program != 0) {
+            GLES20.glDeleteProgram(program);
+            program = 0;
+        }
+        GLES20.glDeleteTextures(1, lutTextureId, 0);
+        GLES20.glDeleteTextures(1, cameraTextureId, 0);
+        if (surfaceTexture != null) {
+            surfaceTexture.release();
+            surfaceTexture = null;
+        }
+        viewWidth = 0;
+        viewHeight = 0;
+    }
+
+    private void drawEs3() {
+        GLES30.glUseProgram(program);
+        GLES30.glActiveTexture(GLES30.GL_TEXTURE0);
+        GLES30.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, cameraTextureId[0]);
+        GLES30.glActiveTexture(GLES30.GL_TEXTURE1);
+        GLES30.glBindTexture(GLES30.GL_TEXTURE_2D, lutTextureId[0]);
+
+        // 变换矩阵随新帧变化，亮度随用户调节变化；其余重绘不更新 UBO
+        float gain = brightness;
+        if (uniformsDirty || gain != uploadedBrightness) {
+            uniformBuffer.clear();
+            uniformBuffer.put(texMatrix).put(gain).put(0f).put(0f).put(0f).position(0);
+            GLES30.glBindBuffer(GLES30.GL_UNIFORM_BUFFER, ubo[0]);
+            GLES30.glBufferSubData(GLES30.GL_UNIFORM_BUFFER, 0, UNIFORM_FLOATS * 4, uniformBuffer);
+            GLES30.glBindBuffer(GLES30.GL_UNIFORM_BUFFER, 0);
+            uploadedBrightness = gain;
+            uniformsDirty = false;
+        }
+        GLES30.glBindBufferBase(GLES30.GL_UNIFORM_BUFFER, UNIFORM_BINDING, ubo[0]);
+
+        GLES30.glBindVertexArray(vao[0]);
+        GLES30.glDrawArrays(GLES30.GL_TRIANGLE_STRIP, 0, 4);
+        GLES30.glBindVertexArray(0);
+    }
+
+    private void drawEs2() {
         GLES20.glUseProgram(program);
 
         // 绑定 OES 纹理
@@ -207,6 +522,11 @@ public class CameraRenderer implements GLSurfaceView.Renderer {
         GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, cameraTextureId[0]);
         GLES20.glUniform1i(uTextureHandle, 0);
 
+        // 绑定查找表纹理
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE1);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, lutTextureId[0]);
+        GLES20.glUniform1i(uColorLutHandle, 1);
+
         // 传递亮度增益
         GLES20.glUniform1f(uBrightnessHandle, brightness);
 
@@ -0,0 +1,160 @@
+package com.example.camera;
+
+import android.opengl.EGL14;
+import android.opengl.EGLConfig;
+import android.opengl.EGLContext;
+import android.opengl.EGLDisplay;
+import android.opengl.EGLExt;
+import android.opengl.EGLSurface;
+import android.util.Log;
+
+/**
+ * EGL14 显示、配置与上下文
+ * 优先创建 OpenGL ES 3.0 上下文，不支持时退回 ES 2.0；配置带 EGL_RECORDABLE_ANDROID，
+ * 同一上下文可以绘制到屏幕、离屏 pbuffer 和编码器输入 Surface。
+ * 可传入另一个 EglCore 的上下文作为共享上下文，共享纹理（包括相机 OES 纹理）。
+ * 除构造外，所有方法在持有该上下文的线程调用。
+ */
+public class EglCore {
+
+    private static final String TAG = "EglCore";
+
+    private static final int EGL_RECORDABLE_ANDROID = 0x3142;
+
+    private EGLDisplay display = EGL14.EGL_NO_DISPLAY;
+    private EGLContext context = EGL14.EGL_NO_CONTEXT;
+    private EGLConfig config;
+    private int glVersion;
+
+    /**
+     * @param sharedContext 共享上下文，不需要共享时传 null
+     */
+    public EglCore(EGLContext sharedContext) {
+        display = EGL14.eglGetDisplay(EGL14.EGL_DEFAULT_DISPLAY);
+        if (display == EGL14.EGL_NO_DISPLAY) {
+            throw new RuntimeException("eglGetDisplay failed");
+        }
+        int[] version = new int[2];
+        if (!EGL14.eglInitialize(display, version, 0, version, 1)) {
+            display = EGL14.EGL_NO_DISPLAY;
+            throw new RuntimeException("eglInitialize failed");
+        }
+        EGLContext share = sharedContext != null ? sharedContext : EGL14.EGL_NO_CONTEXT;
+
+        for (int client = 3; client >= 2 && context == EGL14.EGL_NO_CONTEXT; client--) {
+            EGLConfig candidate = chooseConfig(client);
+            if (candidate == null) continue;
+            int[] attribs = {EGL14.EGL_CONTEXT_CLIENT_VERSION, client, EGL14.EGL_NONE};
+            EGLContext created = EGL14.eglCreateContext(display, candidate, share, attribs, 0);
+            if (EGL14.eglGetError() == EGL14.EGL_SUCCESS && created != EGL14.EGL_NO_CONTEXT) {
+                context = created;
+                config = candidate;
+                glVersion = client;
+            } else {
+                Log.w(TAG, "ES " + client + ".0 context unavailable");
+            }
+        }
+        if (context == EGL14.EGL_NO_CONTEXT) {
+            release();
+            throw new RuntimeException("Unable to create EGL context");
+        }
+        Log.d(TAG, "EGL context created, client version " + glVersion);
+    }
+
+    private EGLConfig chooseConfig(int client) {
+        int renderable = client >= 3 ? EGLExt.EGL_OPENGL_ES3_BIT_KHR : EGL14.EGL_OPENGL_ES2_BIT;
+        int[] attribs = {
+                EGL14.EGL_RED_SIZE, 8,
+                EGL14.EGL_GREEN_SIZE, 8,
+                EGL14.EGL_BLUE_SIZE, 8,
+                EGL14.EGL_ALPHA_SIZE, 8,
+                EGL14.EGL_RENDERABLE_TYPE, renderable,
+                EGL14.EGL_SURFACE_TYPE, EGL14.EGL_WINDOW_BIT | EGL14.EGL_PBUFFER_BIT,
+                EGL_RECORDABLE_ANDROID, 1,
+                EGL14.EGL_NONE
+        };
+        EGLConfig[] configs = new EGLConfig[1];
+        int[] count = new int[1];
+        if (!EGL14.eglChooseConfig(display, attribs, 0, configs, 0, 1, count, 0) || count[0] == 0) {
+            return null;
+        }
+        return configs[0];
+    }
+
+    /** 上下文的客户端版本（3 或 2） */
+    public int getGlVersion() {
+        return glVersion;
+    }
+
+    /** 供其他线程创建共享上下文 */
+    public EGLContext getContext() {
+        return context;
+    }
+
+    /**
+     * 为 Surface 或 SurfaceTexture 创建窗口表面
+     */
+    public EGLSurface createWindowSurface(Object surface) {
+        int[] attribs = {EGL14.EGL_NONE};
+        EGLSurface eglSurface = EGL14.eglCreateWindowSurface(display, config, surface, attribs, 0);
+        checkError("eglCreateWindowSurface");
+        return eglSurface;
+    }
+
+    /**
+     * 创建离屏 pbuffer 表面
+     */
+    public EGLSurface createOffscreenSurface(int width, int height) {
+        int[] attribs = {EGL14.EGL_WIDTH, width, EGL14.EGL_HEIGHT, height, EGL14.EGL_NONE};
+        EGLSurface eglSurface = EGL14.eglCreatePbufferSurface(display, config, attribs, 0);
+        checkError("eglCreatePbufferSurface");
+        return eglSurface;
+    }
+
+    public void makeCurrent(EGLSurface eglSurface) {
+        if (!EGL14.eglMakeCurrent(display, eglSurface, eglSurface, context)) {
+            throw new RuntimeException("eglMakeCurrent failed: 0x" + Integer.toHexString(EGL14.eglGetError()));
+        }
+    }
+
+    public void makeNothingCurrent() {
+        EGL14.eglMakeCurrent(display, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_CONTEXT);
+    }
+
+    /**
+     * @return false 表示表面已失效（例如窗口已销毁）
+     */
+    public boolean swapBuffers(EGLSurface eglSurface) {
+        return EGL14.eglSwapBuffers(display, eglSurface);
+    }
+
+    /** 编码器输入表面的帧时间戳（纳秒） */
+    public void setPresentationTime(EGLSurface eglSurface, long timestampNs) {
+        EGLExt.eglPresentationTimeANDROID(display, eglSurface, timestampNs);
+    }
+
+    public void releaseSurface(EGLSurface eglSurface) {
+        EGL14.eglDestroySurface(display, eglSurface);
+    }
+
+    public void release() {
+        if (display != EGL14.EGL_NO_DISPLAY) {
+            makeNothingCurrent();
+            if (context != EGL14.EGL_NO_CONTEXT) {
+                EGL14.eglDestroyContext(display, context);
+            }
+            // 不调用 eglTerminate：默认显示在进程内共享，共享上下文可能仍在使用
+            EGL14.eglReleaseThread();
+        }
+        display = EGL14.EGL_NO_DISPLAY;
+        context = EGL14.EGL_NO_CONTEXT;
+        config = null;
+    }
+
+    private static void checkError(String op) {
+        int error = EGL14.eglGetError();
+        if (error != EGL14.EGL_SUCCESS) {
+            throw new RuntimeException(op + " failed: 0x" + Integer.toHexString(error));
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package com.example.camera;
+
+import android.opengl.GLES11Ext;
+import android.opengl.GLES20;
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * 预览多通道滤镜图
+ * 源通道把相机 OES 纹理（乘亮度增益）转成灰度写入离屏纹理，之后各通道按固定顺序
+ * 在两个乒乓 FBO 间依次处理，最后一个启用的通道直接绘制到当前输出表面。
+ * 中间纹理约定：rgb 为当前颜色，a 为灰度（供色表与等照度线使用）。
+ * 所有程序在 init 中一次编译，FBO 只在主输出尺寸变化时重新分配；
+ * 可选通道全部关闭时 isActive() 为 false，渲染器走原来的单通道路径，没有额外开销。
+ * 除 setEnabled / setHighlightRange / setBands 外，所有方法在 GL 线程调用。
+ */
+public class FilterGraph {
+
+    private static final String TAG = "FilterGraph";
+
+    public static final String PASS_SMOOTH = "smooth";
+    public static final String PASS_COLORMAP = "colormap";
+    public static final String PASS_CONTOURS = "contours";
+    public static final String PASS_HIGHLIGHT = "highlight";
+
+    private static final String PRECISION =
+            "#ifdef GL_FRAGMENT_PRECISION_HIGH\n" +
+            "precision highp float;\n" +
+            "#else\n" +
+            "precision mediump float;\n" +
+            "#endif\n";
+
+    private static final String SOURCE_VERTEX_SHADER =
+            "attribute vec4 aPosition;\n" +
+            "attribute vec2 aTexCoord;\n" +
+            "uniform mat4 uTexMatrix;\n" +
+            "varying vec2 vTexCoord;\n" +
+            "void main() {\n" +
+            "    gl_Position = aPosition;\n" +
+            "    vTexCoord = (uTexMatrix * vec4(aTexCoord, 0.0, 1.0)).xy;\n" +
+            "}\n";
+
+    // 源通道：亮度增益后转灰度（系数与 CPU 端一致）
+    private static final String SOURCE_FRAGMENT_SHADER =
+            "#extension GL_OES_EGL_image_external : require\n" +
+            PRECISION +
+            "uniform samplerExternalOES uTexture;\n" +
+            "uniform float uBrightness;\n" +
+            "varying vec2 vTexCoord;\n" +
+            "void main() {\n" +
+            "    vec3 boosted = clamp(texture2D(uTexture, vTexCoord).rgb * uBrightness, 0.0, 1.0);\n" +
+            "    float y = dot(boosted, vec3(77.0, 150.0, 29.0) / 256.0);\n" +
+            "    gl_FragColor = vec4(y, y, y, y);\n" +
+            "}\n";
+
+    private static final String PASS_VERTEX_SHADER =
+            "attribute vec4 aPosition;\n" +
+            "attribute vec2 aTexCoord;\n" +
+            "varying vec2 vTexCoord;\n" +
+            "void main() {\n" +
+            "    gl_Position = aPosition;\n" +
+            "    vTexCoord = aTexCoord;\n" +
+            "}\n";
+
+    private static final String PASS_HEADER =
+            PRECISION +
+            "uniform sampler2D uInput;\n" +
+            "uniform vec2 uTexelSize;\n" +
+            "uniform vec4 uParams;\n" +
+            "varying vec2 vTexCoord;\n";
+
+    // 3×3 二项式平滑（颜色与灰度一起平滑）
+    private static final String SMOOTH_SHADER =
+            PASS_HEADER +
+            "vec4 at(float dx, float dy) {\n" +
+            "    return texture2D(uInput, vTexCoord + vec2(dx, dy) * uTexelSize);\n" +
+            "}\n" +
+            "void main() {\n" +
+            "    vec4 s = at(0.0, 0.0) * 4.0\n" +
+            "           + (at(-1.0, 0.0) + at(1.0, 0.0) + at(0.0, -1.0) + at(0.0, 1.0)) * 2.0\n" +
+            "           + at(-1.0, -1.0) + at(1.0, -1.0) + at(-1.0, 1.0) + at(1.0, 1.0);\n" +
+            "    gl_FragColor = s / 16.0;\n" +
+            "}\n";
+
+    // 灰度作为下标查 256×1 色表，灰度保留在 a 通道
+    private static final String COLORMAP_SHADER =
+            PASS_HEADER +
+            "uniform sampler2D uColorLut;\n" +
+            "void main() {\n" +
+            "    float y = texture2D(uInput, vTexCoord).a;\n" +
+            "    float index = floor(y * 255.0 + 0.5);\n" +
+            "    gl_FragColor = vec4(texture2D(uColorLut, vec2((index + 0.5) / 256.0, 0.5)).rgb, y);\n" +
+            "}\n";
+
+    // 等照度线：相邻像素落在不同色带（uParams.x = 分段数）时描白线
+    private static final String CONTOURS_SHADER =
+            PASS_HEADER +
+            "float band(vec2 uv) {\n" +
+            "    return min(floor(texture2D(uInput, uv).a * uParams.x), uParams.x - 1.0);\n" +
+            "}\n" +
+            "void main() {\n" +
+            "    vec4 c = texture2D(uInput, vTexCoord);\n" +
+            "    float b = band(vTexCoord);\n" +
+            "    float diff = abs(band(vTexCoord + vec2(uTexelSize.x, 0.0)) - b)\n" +
+            "               + abs(band(vTexCoord + vec2(0.0, uTexelSize.y)) - b);\n" +
+            "    gl_FragColor = vec4(mix(c.rgb, vec3(1.0), step(0.5, diff)), c.a);\n" +
+            "}\n";
+
+    // 区域高亮：灰度在 [uParams.x, uParams.y] 内保留颜色，其余压暗为灰度
+    private static final String HIGHLIGHT_SHADER =
+            PASS_HEADER +
+            "void main() {\n" +
+            "    vec4 c = texture2D(uInput, vTexCoord);\n" +
+            "    float inside = step(uParams.x, c.a) * step(c.a, uParams.y);\n" +
+            "    gl_FragColor = vec4(mix(vec3(c.a * 0.35), c.rgb, inside), c.a);\n" +
+            "}\n";
+
+    private static final float[] QUAD = {-1f, -1f, 1f, -1f, -1f, 1f, 1f, 1f};
+    private static final float[] TEX_COORDS = {0f, 0f, 1f, 0f, 0f, 1f, 1f, 1f};
+
+    /** 单个处理通道；optional 为 false 的通道在滤镜图启用时总是执行 */
+    private static final class Pass {
+        final String name;
+        final String fragmentShader;
+        final boolean optional;
+        volatile boolean enabled;
+
+        int program;
+        int aPositionHandle;
+        int aTexCoordHandle;
+        int uInputHandle;
+        int uTexelSizeHandle;
+        int uParamsHandle;
+        int uColorLutHandle;
+
+        Pass(String name, String fragmentShader, boolean optional) {
+            this.name = name;
+            this.fragmentShader = fragmentShader;
+            this.optional = optional;
+            this.enabled = !optional;
+        }
+    }
+
+    // 执行顺序固定：平滑 → 色表 → 等照度线 → 区域高亮
+    private final Pass[] passes = {
+            new Pass(PASS_SMOOTH, SMOOTH_SHADER, true),
+            new Pass(PASS_COLORMAP, COLORMAP_SHADER, false),
+            new Pass(PASS_CONTOURS, CONTOURS_SHADER, true),
+            new Pass(PASS_HIGHLIGHT, HIGHLIGHT_SHADER, true),
+    };
+
+    private final FloatBuffer quadBuffer;
+    private final FloatBuffer screenBuffer;
+    private final FloatBuffer texCoordBuffer;
+
+    private int sourceProgram;
+    private int sourcePositionHandle;
+    private int sourceTexCoordHandle;
+    private int sourceTextureHandle;
+    private int sourceTexMatrixHandle;
+    private int sourceBrightnessHandle;
+
+    // 乒乓帧缓冲，只在尺寸变化时重新分配
+    private final int[] framebuffers = new int[2];
+    private final int[] textures = new int[2];
+    private int width;
+    private int height;
+
+    private volatile int bands = 4;
+    private volatile float highlightLow = 0.5f;
+    private volatile float highlightHigh = 1.0f;
+
+    public FilterGraph() {
+        quadBuffer = floatBuffer(QUAD);
+        screenBuffer = floatBuffer(QUAD);
+        texCoordBuffer = floatBuffer(TEX_COORDS);
+    }
+
+    /**
+     * 启用或关闭可选通道（任意线程），调用方负责请求重绘
+     */
+    public void setEnabled(String name, boolean enabled) {
+        Pass pass = find(name);
+        if (!pass.optional) {
+            throw new IllegalArgumentException("Pass is not optional: " + name);
+        }
+        pass.enabled = enabled;
+    }
+
+    public boolean isEnabled(String name) {
+        return find(name).enabled;
+    }
+
+    /**
+     * 是否有可选通道启用；为 false 时渲染器应直接走单通道路径
+     */
+    public boolean isActive() {
+        for (Pass pass : passes) {
+            if (pass.optional && pass.enabled) return true;
+        }
+        return false;
+    }
+
+    /** 等照度线的分段数，与当前色表的图例分段一致 */
+    public void setBands(int bands) {
+        this.bands = bands;
+    }
+
+    /** 区域高亮的灰度范围 [low, high]，取值 0..1 */
+    public void setHighlightRange(float low, float high) {
+        highlightLow = low;
+        highlightHigh = high;
+    }
+
+    /**
+     * 在 onContextCreated 中调用，一次编译所有通道（上下文重建后 GL 对象需要重新创建）
+     */
+    public void init() {
+        sourceProgram = ShaderUtils.createProgram(SOURCE_VERTEX_SHADER, SOURCE_FRAGMENT_SHADER);
+        sourcePositionHandle   = GLES20.glGetAttribLocation(sourceProgram, "aPosition");
+        sourceTexCoordHandle   = GLES20.glGetAttribLocation(sourceProgram, "aTexCoord");
+        sourceTextureHandle    = GLES20.glGetUniformLocation(sourceProgram, "uTexture");
+        sourceTexMatrixHandle  = GLES20.glGetUniformLocation(sourceProgram, "uTexMatrix");
+        sourceBrightnessHandle = GLES20.glGetUniformLocation(sourceProgram, "uBrightness");
+
+        for (Pass pass : passes) {
+            pass.program = ShaderUtils.createProgram(PASS_VERTEX_SHADER, pass.fragmentShader);
+            pass.aPositionHandle  = GLES20.glGetAttribLocation(pass.program, "aPosition");
+            pass.aTexCoordHandle  = GLES20.glGetAttribLocation(pass.program, "aTexCoord");
+            pass.uInputHandle     = GLES20.glGetUniformLocation(pass.program, "uInput");
+            pass.uTexelSizeHandle = GLES20.glGetUniformLocation(pass.program, "uTexelSize");
+            pass.uParamsHandle    = GLES20.glGetUniformLocation(pass.program, "uParams");
+            pass.uColorLutHandle  = GLES20.glGetUniformLocation(pass.program, "uColorLut");
+        }
+
+        // 旧上下文的纹理和 FBO 已随上下文销毁
+        width = 0;
+        height = 0;
+    }
+
+    /**
+     * 主输出尺寸变化时调用，尺寸不变时不重新分配
+     */
+    public void resize(int width, int height) {
+        if (width == this.width && height == this.height) return;
+        if (this.width > 0) {
+            GLES20.glDeleteFramebuffers(2, framebuffers, 0);
+            GLES20.glDeleteTextures(2, textures, 0);
+        }
+        this.width = width;
+        this.height = height;
+
+        GLES20.glGenTextures(2, textures, 0);
+        GLES20.glGenFramebuffers(2, framebuffers, 0);
+        for (int i = 0; i < 2; i++) {
+            GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textures[i]);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_NEAREST);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_NEAREST);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+            GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, width, height, 0,
+                    GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, null);
+
+            GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, framebuffers[i]);
+            GLES20.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0,
+                    GLES20.GL_TEXTURE_2D, textures[i], 0);
+            int status = GLES20.glCheckFramebufferStatus(GLES20.GL_FRAMEBUFFER);
+            if (status != GLES20.GL_FRAMEBUFFER_COMPLETE) {
+                Log.e(TAG, "Filter framebuffer incomplete: 0x" + Integer.toHexString(status));
+            }
+        }
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        Log.d(TAG, "Filter framebuffers allocated: " + width + "x" + height);
+    }
+
+    /**
+     * 执行整个滤镜图，最后一个启用的通道以 screenVertices（宽高比校正后的顶点）
+     * 绘制到当前输出表面（targetWidth × targetHeight）
+     */
+    public void draw(int oesTextureId, float[] texMatrix, float brightness,
+                     int lutTextureId, float[] screenVertices, int targetWidth, int targetHeight) {
+        if (width == 0) return;
+
+        // 源通道：相机帧 → 灰度
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, framebuffers[0]);
+        GLES20.glViewport(0, 0, width, height);
+        GLES20.glUseProgram(sourceProgram);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, oesTextureId);
+        GLES20.glUniform1i(sourceTextureHandle, 0);
+        GLES20.glUniformMatrix4fv(sourceTexMatrixHandle, 1, false, texMatrix, 0);
+        GLES20.glUniform1f(sourceBrightnessHandle, brightness);
+        drawQuad(sourcePositionHandle, sourceTexCoordHandle, quadBuffer);
+
+        int last = lastEnabled();
+        int input = 0;
+        for (int i = 0; i <= last; i++) {
+            Pass pass = passes[i];
+            if (!pass.enabled) continue;
+
+            if (i == last) {
+                GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+                GLES20.glViewport(0, 0, targetWidth, targetHeight);
+                screenBuffer.put(screenVertices).position(0);
+            } else {
+                GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, framebuffers[input ^ 1]);
+            }
+
+            GLES20.glUseProgram(pass.program);
+            GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+            GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textures[input]);
+            GLES20.glUniform1i(pass.uInputHandle, 0);
+            GLES20.glUniform2f(pass.uTexelSizeHandle, 1f / width, 1f / height);
+            GLES20.glUniform4f(pass.uParamsHandle, paramX(pass), paramY(pass), 0f, 0f);
+            if (pass.uColorLutHandle >= 0) {
+                GLES20.glActiveTexture(GLES20.GL_TEXTURE1);
+                GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, lutTextureId);
+                GLES20.glUniform1i(pass.uColorLutHandle, 1);
+            }
+            drawQuad(pass.aPositionHandle, pass.aTexCoordHandle, i == last ? screenBuffer : quadBuffer);
+            input ^= 1;
+        }
+    }
+
+    private float paramX(Pass pass) {
+        switch (pass.name) {
+            case PASS_CONTOURS:
+                return bands;
+            case PASS_HIGHLIGHT:
+                return highlightLow;
+            default:
+                return 0f;
+        }
+    }
+
+    private float paramY(Pass pass) {
+        return PASS_HIGHLIGHT.equals(pass.name) ? highlightHigh : 0f;
+    }
+
+    private int lastEnabled() {
+        for (int i = passes.length - 1; i >= 0; i--) {
+            if (passes[i].enabled) return i;
+        }
+        return -1;
+    }
+
+    private void drawQuad(int positionHandle, int texCoordHandle, FloatBuffer vertices) {
+        GLES20.glEnableVertexAttribArray(positionHandle);
+        GLES20.glVertexAttribPointer(positionHandle, 2, GLES20.GL_FLOAT, false, 0, vertices);
+        GLES20.glEnableVertexAttribArray(texCoordHandle);
+        GLES20.glVertexAttribPointer(texCoordHandle, 2, GLES20.GL_FLOAT, false, 0, texCoordBuffer);
+        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+        GLES20.glDisableVertexAttribArray(positionHandle);
+        GLES20.glDisableVertexAttribArray(texCoordHandle);
+    }
+
+    private Pass find(String name) {
+        for (Pass pass : passes) {
+            if (pass.name.equals(name)) return pass;
+        }
+        throw new IllegalArgumentException("Unknown pass: " + name);
+    }
+
+    private static FloatBuffer floatBuffer(float[] data) {
+        FloatBuffer buffer = ByteBuffer.allocateDirect(data.length * 4)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        buffer.put(data).position(0);
+        return buffer;
+    }
+
+    public void release() {
+        if (sourceProgram != 0) {
+            GLES20.glDeleteProgram(sourceProgram);
+            sourceProgram = 0;
+        }
+        for (Pass pass : passes) {
+            if (pass.program != 0) {
+                GLES20.glDeleteProgram(pass.program);
+                pass.program = 0;
+            }
+        }
+        if (width > 0) {
+            GLES20.glDeleteFramebuffers(2, framebuffers, 0);
+            GLES20.glDeleteTextures(2, textures, 0);
+            width = 0;
+            height = 0;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.camera;
+
+import android.graphics.SurfaceTexture;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 由相机帧驱动的渲染调度（配合 GLRenderThread 按需绘制）
+ * 只有新帧到达或 uniform 变化时才请求重绘；可选按目标帧率节流。
+ * 统计被跳过的相机帧（dropped）和没有新帧的重绘（duplicated）。
+ */
+public class FrameScheduler implements SurfaceTexture.OnFrameAvailableListener {
+
+    private final Runnable renderRequest;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    // 目标帧间隔，0 表示不节流
+    private volatile long targetIntervalNs;
+    private volatile long lastRequestNs;
+    private boolean renderScheduled;   // 仅在主线程访问
+
+    // 自上次绘制以来到达的相机帧数
+    private final AtomicInteger pendingFrames = new AtomicInteger();
+
+    private final AtomicLong framesAvailable = new AtomicLong();
+    private final AtomicLong framesRendered = new AtomicLong();
+    private final AtomicLong framesDropped = new AtomicLong();
+    private final AtomicLong framesDuplicated = new AtomicLong();
+
+    private final Runnable pacedRender = () -> {
+        renderScheduled = false;
+        requestRender();
+    };
+
+    /**
+     * @param renderRequest 请求绘制一次（例如 GLRenderThread::requestRender）
+     */
+    public FrameScheduler(Runnable renderRequest) {
+        this.renderRequest = renderRequest;
+    }
+
+    /**
+     * 目标帧率，≤ 0 表示相机每出一帧就绘制一次
+     */
+    public void setTargetFps(float fps) {
+        targetIntervalNs = fps > 0 ? (long) (1_000_000_000L / fps) : 0;
+    }
+
+    @Override
+    public void onFrameAvailable(SurfaceTexture surfaceTexture) {
+        framesAvailable.incrementAndGet();
+        pendingFrames.incrementAndGet();
+        if (targetIntervalNs == 0) {
+            requestRender();
+        } else {
+            handler.post(this::schedulePacedRender);
+        }
+    }
+
+    /**
+     * uniform（亮度增益、色表、宽高比等）变化时请求重绘，不等待新帧
+     */
+    public void requestRedraw() {
+        requestRender();
+    }
+
+    /**
+     * 由渲染器在 GL 线程每次绘制前调用
+     * @return true 表示有新帧，需要 updateTexImage；false 表示只是重绘上一帧
+     */
+    public boolean onDrawFrame() {
+        int pending = pendingFrames.getAndSet(0);
+        if (pending == 0) {
+            framesDuplicated.incrementAndGet();
+            return false;
+        }
+        // updateTexImage 只取最新一帧，其余帧被跳过
+        framesDropped.addAndGet(pending - 1);
+        framesRendered.incrementAndGet();
+        return true;
+    }
+
+    public void release() {
+        handler.removeCallbacks(pacedRender);
+        renderScheduled = false;
+    }
+
+    public long getFramesAvailable() {
+        return framesAvailable.get();
+    }
+
+    public long getFramesRendered() {
+        return framesRendered.get();
+    }
+
+    public long getFramesDropped() {
+        return framesDropped.get();
+    }
+
+    public long getFramesDuplicated() {
+        return framesDuplicated.get();
+    }
+
+    private void schedulePacedRender() {
+        if (renderScheduled) return;
+        long wait = lastRequestNs + targetIntervalNs - SystemClock.elapsedRealtimeNanos();
+        if (wait <= 0) {
+            requestRender();
+        } else {
+            renderScheduled = true;
+            handler.postDelayed(pacedRender, Math.max(1, wait / 1_000_000));
+        }
+    }
+
+    private void requestRender() {
+        lastRequestNs = SystemClock.elapsedRealtimeNanos();
+        renderRequest.run();
+    }
+
+    @Override
+    public String toString() {
+        return "FrameScheduler{" +
+                "available=" + framesAvailable.get() +
+                ", rendered=" + framesRendered.get() +
+                ", dropped=" + framesDropped.get() +
+                ", duplicated=" + framesDuplicated.get() +
+                '}';
+    }
+}
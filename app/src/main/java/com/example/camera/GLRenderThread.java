@@ -0,0 +1,237 @@
+package com.example.camera;
+
+import android.opengl.EGLContext;
+import android.opengl.EGLSurface;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 独立的 EGL 渲染线程（代替 GLSurfaceView）
+ * 线程持有一个可共享的 EGL 上下文，可同时绘制到多个输出表面（屏幕、离屏 pbuffer、编码器输入）：
+ * 每次绘制只调用一次 Renderer.onBeginFrame（updateTexImage），再依次绘制到各个输出。
+ * 上下文的生命周期与本对象一致，不随 Activity 暂停销毁，暂停时只移除窗口输出。
+ */
+public class GLRenderThread {
+
+    private static final String TAG = "GLRenderThread";
+
+    /** 与输出目标无关的渲染器，所有回调在渲染线程 */
+    public interface Renderer {
+        /** 上下文创建后调用一次，创建 GL 对象 */
+        void onContextCreated(int glVersion);
+
+        /**
+         * 每次绘制开始时调用一次（当前表面为内部 pbuffer）
+         * @return true 表示有新的相机帧
+         */
+        boolean onBeginFrame();
+
+        /** 绘制到当前输出，width × height 为输出尺寸 */
+        void onDrawFrame(int width, int height, boolean newFrame, boolean primary);
+
+        /** 所有输出绘制完成后调用 */
+        void onEndFrame(boolean newFrame);
+
+        /** 当前相机帧的时间戳（纳秒），写入编码器输出 */
+        long getFrameTimestampNs();
+
+        /** 上下文销毁前调用，释放 GL 对象 */
+        void onContextDestroyed();
+    }
+
+    /** 输出回调，在交换缓冲前调用，可在此回读像素 */
+    public interface OnFrameRenderedListener {
+        void onFrameRendered(Output output, long timestampNs);
+    }
+
+    /** 主输出：测光、滤镜 FBO 尺寸与渲染耗时以它为准 */
+    public static final int FLAG_PRIMARY = 1;
+    /** 编码器输入：只绘制新帧，并写入帧时间戳 */
+    public static final int FLAG_RECORDER = 1 << 1;
+
+    /** 一个输出表面；Surface 为 null 时为离屏 pbuffer */
+    public static final class Output {
+        final Object surface;
+        final int flags;
+        volatile int width;
+        volatile int height;
+        volatile OnFrameRenderedListener listener;
+        EGLSurface eglSurface;
+
+        Output(Object surface, int width, int height, int flags) {
+            this.surface = surface;
+            this.width = width;
+            this.height = height;
+            this.flags = flags;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public void setOnFrameRenderedListener(OnFrameRenderedListener listener) {
+            this.listener = listener;
+        }
+    }
+
+    private final Renderer renderer;
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final AtomicBoolean renderPending = new AtomicBoolean();
+    private final Runnable drawFrame = this::drawFrame;
+
+    // 以下只在渲染线程访问
+    private EglCore eglCore;
+    private EGLSurface idleSurface;   // 没有输出时保持上下文当前
+    private final List<Output> outputs = new ArrayList<>();
+
+    /**
+     * 创建线程与 EGL 上下文，返回时上下文已就绪并完成 Renderer.onContextCreated
+     * @param sharedContext 共享上下文，不需要共享时传 null
+     */
+    public GLRenderThread(Renderer renderer, EGLContext sharedContext) {
+        this.renderer = renderer;
+        thread = new HandlerThread(TAG);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        runAndWait(() -> {
+            eglCore = new EglCore(sharedContext);
+            idleSurface = eglCore.createOffscreenSurface(1, 1);
+            eglCore.makeCurrent(idleSurface);
+            renderer.onContextCreated(eglCore.getGlVersion());
+        });
+    }
+
+    /** 本线程的 EGL 上下文，其他线程可据此创建共享上下文 */
+    public EGLContext getSharedContext() {
+        return eglCore.getContext();
+    }
+
+    /**
+     * 添加输出表面（Surface / SurfaceTexture，为 null 时创建 width × height 离屏 pbuffer）
+     */
+    public Output addOutput(Object surface, int width, int height, int flags) {
+        Output output = new Output(surface, width, height, flags);
+        runAndWait(() -> {
+            output.eglSurface = surface != null
+                    ? eglCore.createWindowSurface(surface)
+                    : eglCore.createOffscreenSurface(width, height);
+            outputs.add(output);
+        });
+        requestRender();
+        return output;
+    }
+
+    /** 窗口尺寸变化（surfaceChanged） */
+    public void resizeOutput(Output output, int width, int height) {
+        output.width = width;
+        output.height = height;
+        requestRender();
+    }
+
+    /**
+     * 移除并销毁输出表面，返回时 EGL 表面已销毁（满足 surfaceDestroyed 的要求）
+     */
+    public void removeOutput(Output output) {
+        runAndWait(() -> {
+            if (outputs.remove(output)) {
+                eglCore.makeCurrent(idleSurface);
+                eglCore.releaseSurface(output.eglSurface);
+                output.eglSurface = null;
+            }
+        });
+    }
+
+    /** 请求绘制一次，多次请求在下一次绘制前合并 */
+    public void requestRender() {
+        if (renderPending.compareAndSet(false, true)) {
+            handler.post(drawFrame);
+        }
+    }
+
+    /** 在渲染线程执行（上下文为当前） */
+    public void queueEvent(Runnable event) {
+        handler.post(event);
+    }
+
+    private void drawFrame() {
+        renderPending.set(false);
+        if (eglCore == null) return;
+
+        // 即使没有输出也要消费相机帧，否则生产端会因缓冲区耗尽而阻塞
+        eglCore.makeCurrent(idleSurface);
+        boolean newFrame = renderer.onBeginFrame();
+        long timestampNs = renderer.getFrameTimestampNs();
+
+        for (int i = 0; i < outputs.size(); i++) {
+            Output output = outputs.get(i);
+            boolean recorder = (output.flags & FLAG_RECORDER) != 0;
+            if (recorder && !newFrame) continue;
+
+            eglCore.makeCurrent(output.eglSurface);
+            renderer.onDrawFrame(output.width, output.height, newFrame, (output.flags & FLAG_PRIMARY) != 0);
+            OnFrameRenderedListener l = output.listener;
+            if (l != null) l.onFrameRendered(output, timestampNs);
+            if (recorder) eglCore.setPresentationTime(output.eglSurface, timestampNs);
+            if (!eglCore.swapBuffers(output.eglSurface)) {
+                Log.w(TAG, "eglSwapBuffers failed on output " + output.width + "x" + output.height);
+            }
+        }
+        renderer.onEndFrame(newFrame);
+    }
+
+    /**
+     * 释放所有输出与上下文并结束线程
+     */
+    public void release() {
+        handler.removeCallbacks(drawFrame);
+        runAndWait(() -> {
+            if (eglCore == null) return;
+            eglCore.makeCurrent(idleSurface);
+            renderer.onContextDestroyed();
+            for (Output output : outputs) {
+                eglCore.releaseSurface(output.eglSurface);
+                output.eglSurface = null;
+            }
+            outputs.clear();
+            eglCore.releaseSurface(idleSurface);
+            eglCore.release();
+            eglCore = null;
+        });
+        thread.quitSafely();
+    }
+
+    private void runAndWait(Runnable task) {
+        if (Thread.currentThread() == thread) {
+            task.run();
+            return;
+        }
+        CountDownLatch done = new CountDownLatch(1);
+        RuntimeException[] failure = new RuntimeException[1];
+        handler.post(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                failure[0] = e;
+            } finally {
+                done.countDown();
+            }
+        });
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure[0] != null) throw failure[0];
+    }
+}
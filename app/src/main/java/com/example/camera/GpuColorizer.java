@@ -0,0 +1,422 @@
+package com.example.camera;
+
+import android.graphics.Bitmap;
+import android.opengl.EGLContext;
+import android.opengl.EGLSurface;
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.opengl.GLUtils;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+
+import com.example.camera.imaging.ColorMap;
+import com.example.camera.imaging.LumaHistogram;
+import com.example.camera.imaging.PseudoColorRenderer;
+import com.example.camera.imaging.RowBandExecutor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * GPU 全分辨率拍照伪彩色
+ * 把解码后的位图（或 Y 平面）上传为纹理，与预览相同的查表着色器渲染到全分辨率离屏 FBO，
+ * 旋转由纹理坐标完成；再经 glReadPixels（ES 3.0 经 PBO）回读到调用方的池化缓冲区。
+ * 着色器按 BGRA 顺序输出颜色、把灰度写入 alpha，回读的整数即 Android 的 ARGB 排列，
+ * 拷贝时顺带统计直方图并把 alpha 置为不透明，结果与 CPU 内核逐位一致。
+ * 尺寸超过 GL_MAX_TEXTURE_SIZE / 视口上限或分配失败时返回 false，调用方退回 CPU 路径。
+ * 拥有独立的 GL 线程，render* 方法可在任意线程调用并阻塞到结果写入完成。
+ * 全分辨率的纹理与回读缓冲（48MP 时各约 190 MB）在空闲一段时间后或 trim() 时释放。
+ */
+public class GpuColorizer {
+
+    private static final String TAG = "GpuColorizer";
+
+    // 最后一次渲染后保留全分辨率资源的时长，连拍时免于反复分配
+    private static final long IDLE_TRIM_MS = 3000;
+
+    private static final String VERTEX_SHADER =
+            "attribute vec4 aPosition;\n" +
+            "attribute vec2 aTexCoord;\n" +
+            "varying vec2 vTexCoord;\n" +
+            "void main() {\n" +
+            "    gl_Position = aPosition;\n" +
+            "    vTexCoord = aTexCoord;\n" +
+            "}\n";
+
+    // 灰度定点系数与 CPU 端一致；Y 平面以 GL_LUMINANCE 上传时 rgb 相同，点积即 Y 本身
+    private static final String FRAGMENT_SHADER =
+            "#ifdef GL_FRAGMENT_PRECISION_HIGH\n" +
+            "precision highp float;\n" +
+            "#else\n" +
+            "precision mediump float;\n" +
+            "#endif\n" +
+            "uniform sampler2D uTexture;\n" +
+            "uniform sampler2D uColorLut;\n" +
+            "varying vec2 vTexCoord;\n" +
+            "void main() {\n" +
+            "    vec3 rgb = texture2D(uTexture, vTexCoord).rgb;\n" +
+            "    float index = floor(dot(rgb, vec3(77.0, 150.0, 29.0) / 256.0) * 255.0 + 0.5);\n" +
+            "    vec4 c = texture2D(uColorLut, vec2((index + 0.5) / 256.0, 0.5));\n" +
+            "    gl_FragColor = vec4(c.b, c.g, c.r, index / 255.0);\n" +
+            "}\n";
+
+    // 输出图像左上、右上、左下、右下角依次位于 NDC 的 (-1,-1)、(1,-1)、(-1,1)、(1,1)，
+    // 这样 glReadPixels 的第 0 行就是图像顶行
+    private static final float[] QUAD = {-1f, -1f, 1f, -1f, -1f, 1f, 1f, 1f};
+
+    // 各旋转角度下输出四角对应的源纹理坐标（t = 0 为源图顶行），顺时针旋转
+    private static final float[][] ROTATED_TEX_COORDS = {
+            {0f, 0f, 1f, 0f, 0f, 1f, 1f, 1f},   // 0°
+            {0f, 1f, 0f, 0f, 1f, 1f, 1f, 0f},   // 90°
+            {1f, 1f, 0f, 1f, 1f, 0f, 0f, 0f},   // 180°
+            {1f, 0f, 1f, 1f, 0f, 0f, 0f, 1f},   // 270°
+    };
+
+    private interface Upload {
+        void run();
+    }
+
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final Runnable trimTask = this::releaseOutput;
+
+    // 以下只在 GL 线程访问
+    private EglCore eglCore;
+    private EGLSurface surface;
+    private boolean es3;
+    private int maxSize;
+    private int program;
+    private int aPositionHandle;
+    private int aTexCoordHandle;
+    private int uTextureHandle;
+    private int uColorLutHandle;
+    private final int[] textures = new int[3];   // 源、LUT、输出
+    private final int[] framebuffer = new int[1];
+    private final int[] pbo = new int[1];
+    private boolean sourceUploaded;              // 源纹理持有上传的图像，与输出是否分配成功无关
+    private int outputWidth;
+    private int outputHeight;
+    private int readbackBytes;
+    private ByteBuffer readbackBuffer;           // ES 2.0 回读缓冲
+    private final FloatBuffer quadBuffer;
+    private final FloatBuffer texCoordBuffer;
+    private final ByteBuffer lutBuffer = ByteBuffer.allocateDirect(ColorMap.LUT_SIZE * 4)
+            .order(ByteOrder.nativeOrder());
+
+    /**
+     * @param sharedContext 与之共享对象的上下文（例如预览渲染线程），可为 null
+     */
+    public GpuColorizer(EGLContext sharedContext) {
+        quadBuffer = ByteBuffer.allocateDirect(QUAD.length * 4)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        quadBuffer.put(QUAD).position(0);
+        texCoordBuffer = ByteBuffer.allocateDirect(8 * 4)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+
+        thread = new HandlerThread(TAG);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        handler.post(() -> init(sharedContext));
+    }
+
+    private void init(EGLContext sharedContext) {
+        try {
+            eglCore = new EglCore(sharedContext);
+            surface = eglCore.createOffscreenSurface(1, 1);
+            eglCore.makeCurrent(surface);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "GPU colorizer unavailable", e);
+            eglCore = null;
+            return;
+        }
+        es3 = eglCore.getGlVersion() >= 3;
+
+        int[] value = new int[2];
+        GLES20.glGetIntegerv(GLES20.GL_MAX_TEXTURE_SIZE, value, 0);
+        maxSize = value[0];
+        GLES20.glGetIntegerv(GLES20.GL_MAX_VIEWPORT_DIMS, value, 0);
+        maxSize = Math.min(maxSize, Math.min(value[0], value[1]));
+
+        program = ShaderUtils.createProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+        aPositionHandle = GLES20.glGetAttribLocation(program, "aPosition");
+        aTexCoordHandle = GLES20.glGetAttribLocation(program, "aTexCoord");
+        uTextureHandle  = GLES20.glGetUniformLocation(program, "uTexture");
+        uColorLutHandle = GLES20.glGetUniformLocation(program, "uColorLut");
+
+        GLES20.glGenTextures(textures.length, textures, 0);
+        for (int texture : textures) {
+            GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, texture);
+            // 最近邻：输出像素与源像素一一对应，不做插值
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_NEAREST);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_NEAREST);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+        }
+        GLES20.glGenFramebuffers(1, framebuffer, 0);
+        if (es3) GLES30.glGenBuffers(1, pbo, 0);
+        Log.d(TAG, "GPU colorizer ready, max size " + maxSize + ", PBO readback: " + es3);
+    }
+
+    /**
+     * 将 ARGB_8888 位图伪彩色化并顺时针旋转，写入 dst 左上角（语义同 PseudoColorRenderer.render）
+     * @return false 表示未在 GPU 上完成，调用方应使用 CPU 路径
+     */
+    public boolean render(Bitmap src, int rotationDegrees, ColorMap colorMap,
+                          int[] dst, int dstStride, LumaHistogram histogram, RowBandExecutor executor) {
+        return render(src.getWidth(), src.getHeight(), rotationDegrees, colorMap, dst, dstStride,
+                histogram, executor, () -> GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, src, 0));
+    }
+
+    /**
+     * 以 Y 平面（pixelStride 为 1）为输入，语义同 PseudoColorRenderer.renderLuma
+     * @return false 表示未在 GPU 上完成，调用方应使用 CPU 路径
+     */
+    public boolean renderLuma(ByteBuffer yPlane, int rowStride, int width, int height,
+                              int rotationDegrees, ColorMap colorMap, int[] dst, int dstStride,
+                              LumaHistogram histogram, RowBandExecutor executor) {
+        return render(width, height, rotationDegrees, colorMap, dst, dstStride, histogram, executor,
+                () -> uploadLuma(yPlane.duplicate(), rowStride, width, height));
+    }
+
+    private boolean render(int width, int height, int rotationDegrees, ColorMap colorMap,
+                           int[] dst, int dstStride, LumaHistogram histogram,
+                           RowBandExecutor executor, Upload upload) {
+        int rotation = PseudoColorRenderer.normalizeRotation(rotationDegrees);
+        int rw = PseudoColorRenderer.rotatedWidth(width, height, rotation);
+        int rh = PseudoColorRenderer.rotatedHeight(width, height, rotation);
+        if (dstStride < rw || dst.length < (rh - 1) * dstStride + rw) {
+            throw new IllegalArgumentException("dst too small for " + rw + "x" + rh);
+        }
+        FutureTask<Boolean> task = new FutureTask<>(() -> {
+            if (eglCore == null || program == 0 || width > maxSize || height > maxSize) return false;
+            handler.removeCallbacks(trimTask);
+            try {
+                if (!draw(width, height, rotation, rw, rh, colorMap, upload)) return false;
+                return readBack(rw, rh, dst, dstStride, histogram, executor);
+            } finally {
+                handler.postDelayed(trimTask, IDLE_TRIM_MS);
+            }
+        });
+        return call(task);
+    }
+
+    private boolean draw(int width, int height, int rotation, int rw, int rh,
+                         ColorMap colorMap, Upload upload) {
+        GLES20.glGetError();   // 清除之前的错误，以便检查本次分配是否失败
+
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textures[0]);
+        GLES20.glPixelStorei(GLES20.GL_UNPACK_ALIGNMENT, 1);
+        sourceUploaded = true;
+        upload.run();
+
+        lutBuffer.clear();
+        lutBuffer.put(colorMap.toRgbaBytes()).position(0);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE1);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textures[1]);
+        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, ColorMap.LUT_SIZE, 1, 0,
+                GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, lutBuffer);
+
+        if (!ensureOutput(rw, rh)) return false;
+
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, framebuffer[0]);
+        GLES20.glViewport(0, 0, rw, rh);
+        GLES20.glUseProgram(program);
+        GLES20.glUniform1i(uTextureHandle, 0);
+        GLES20.glUniform1i(uColorLutHandle, 1);
+
+        texCoordBuffer.clear();
+        texCoordBuffer.put(ROTATED_TEX_COORDS[rotation / 90]).position(0);
+        GLES20.glEnableVertexAttribArray(aPositionHandle);
+        GLES20.glVertexAttribPointer(aPositionHandle, 2, GLES20.GL_FLOAT, false, 0, quadBuffer);
+        GLES20.glEnableVertexAttribArray(aTexCoordHandle);
+        GLES20.glVertexAttribPointer(aTexCoordHandle, 2, GLES20.GL_FLOAT, false, 0, texCoordBuffer);
+        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+        GLES20.glDisableVertexAttribArray(aPositionHandle);
+        GLES20.glDisableVertexAttribArray(aTexCoordHandle);
+
+        int error = GLES20.glGetError();
+        if (error != GLES20.GL_NO_ERROR) {
+            Log.w(TAG, "GPU colorize failed for " + width + "x" + height + ": 0x" + Integer.toHexString(error));
+            GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+            return false;
+        }
+        return true;
+    }
+
+    /** Y 平面以 GL_LUMINANCE 上传；ES 3.0 按行跨度直接上传，ES 2.0 行跨度不等于宽度时逐行上传 */
+    private void uploadLuma(ByteBuffer plane, int rowStride, int width, int height) {
+        if (rowStride == width) {
+            GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_LUMINANCE, width, height, 0,
+                    GLES20.GL_LUMINANCE, GLES20.GL_UNSIGNED_BYTE, plane);
+        } else if (es3) {
+            GLES30.glPixelStorei(GLES30.GL_UNPACK_ROW_LENGTH, rowStride);
+            GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_LUMINANCE, width, height, 0,
+                    GLES20.GL_LUMINANCE, GLES20.GL_UNSIGNED_BYTE, plane);
+            GLES30.glPixelStorei(GLES30.GL_UNPACK_ROW_LENGTH, 0);
+        } else {
+            GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_LUMINANCE, width, height, 0,
+                    GLES20.GL_LUMINANCE, GLES20.GL_UNSIGNED_BYTE, null);
+            int start = plane.position();
+            for (int y = 0; y < height; y++) {
+                plane.position(start + y * rowStride);
+                GLES20.glTexSubImage2D(GLES20.GL_TEXTURE_2D, 0, 0, y, width, 1,
+                        GLES20.GL_LUMINANCE, GLES20.GL_UNSIGNED_BYTE, plane);
+            }
+        }
+    }
+
+    /** 输出纹理、FBO 与回读缓冲只在尺寸变化时重新分配（变小时也重新分配，不保留大缓冲） */
+    private boolean ensureOutput(int width, int height) {
+        if (width == outputWidth && height == outputHeight) return true;
+
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textures[2]);
+        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, width, height, 0,
+                GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, null);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, framebuffer[0]);
+        GLES20.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0,
+                GLES20.GL_TEXTURE_2D, textures[2], 0);
+        int status = GLES20.glCheckFramebufferStatus(GLES20.GL_FRAMEBUFFER);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        if (status != GLES20.GL_FRAMEBUFFER_COMPLETE) {
+            Log.w(TAG, "Capture framebuffer incomplete: 0x" + Integer.toHexString(status));
+            outputWidth = 0;
+            outputHeight = 0;
+            return false;
+        }
+
+        int bytes = width * height * 4;
+        if (bytes != readbackBytes) {
+            if (es3) {
+                GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, pbo[0]);
+                GLES30.glBufferData(GLES30.GL_PIXEL_PACK_BUFFER, bytes, null, GLES30.GL_STREAM_READ);
+                GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, 0);
+            } else {
+                readbackBuffer = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+            }
+            readbackBytes = bytes;
+        }
+        outputWidth = width;
+        outputHeight = height;
+        return true;
+    }
+
+    /**
+     * 立即释放全分辨率的源纹理、输出纹理与回读缓冲（如 onPause 时），下次渲染按需重新分配
+     */
+    public void trim() {
+        handler.removeCallbacks(trimTask);
+        handler.post(trimTask);
+    }
+
+    /** GL 线程：纹理重新指定为 0 × 0、PBO 缩为 0 字节即归还显存 */
+    private void releaseOutput() {
+        if (eglCore == null || !sourceUploaded && outputWidth == 0 && readbackBytes == 0) return;
+        // 上传成功而输出分配或绘制失败时，源纹理同样持有全分辨率图像
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textures[0]);
+        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, 0, 0, 0,
+                GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, null);
+        sourceUploaded = false;
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textures[2]);
+        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, 0, 0, 0,
+                GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, null);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        if (es3) {
+            GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, pbo[0]);
+            GLES30.glBufferData(GLES30.GL_PIXEL_PACK_BUFFER, 0, null, GLES30.GL_STREAM_READ);
+            GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, 0);
+        }
+        readbackBuffer = null;
+        readbackBytes = 0;
+        outputWidth = 0;
+        outputHeight = 0;
+        Log.d(TAG, "Full-resolution buffers released");
+    }
+
+    private boolean readBack(int width, int height, int[] dst, int dstStride,
+                             LumaHistogram histogram, RowBandExecutor executor) {
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, framebuffer[0]);
+        GLES20.glPixelStorei(GLES20.GL_PACK_ALIGNMENT, 4);
+        int bytes = width * height * 4;
+        try {
+            if (es3) {
+                GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, pbo[0]);
+                GLES30.glReadPixels(0, 0, width, height, GLES30.GL_RGBA, GLES30.GL_UNSIGNED_BYTE, 0);
+                ByteBuffer mapped = (ByteBuffer) GLES30.glMapBufferRange(GLES30.GL_PIXEL_PACK_BUFFER,
+                        0, bytes, GLES30.GL_MAP_READ_BIT);
+                if (mapped == null) return false;
+                copyOut(mapped.order(ByteOrder.nativeOrder()).asIntBuffer(),
+                        width, height, dst, dstStride, histogram, executor);
+                GLES30.glUnmapBuffer(GLES30.GL_PIXEL_PACK_BUFFER);
+            } else {
+                readbackBuffer.clear();
+                GLES20.glReadPixels(0, 0, width, height, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, readbackBuffer);
+                copyOut(readbackBuffer.asIntBuffer(), width, height, dst, dstStride, histogram, executor);
+            }
+        } finally {
+            if (es3) GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, 0);
+            GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        }
+        return true;
+    }
+
+    /**
+     * 按行拷贝到 dst（alpha 中是灰度），同时统计直方图并把 alpha 置为 0xFF
+     */
+    private static void copyOut(IntBuffer pixels, int width, int height, int[] dst, int dstStride,
+                                LumaHistogram histogram, RowBandExecutor executor) {
+        RowBandExecutor.RowKernel kernel = (rowStart, rowEnd) -> {
+            IntBuffer view = pixels.duplicate();
+            int[] bins = histogram != null ? new int[LumaHistogram.BINS] : null;
+            for (int y = rowStart; y < rowEnd; y++) {
+                int di = y * dstStride;
+                view.position(y * width);
+                view.get(dst, di, width);
+                for (int end = di + width; di < end; di++) {
+                    int p = dst[di];
+                    if (bins != null) bins[p >>> 24]++;
+                    dst[di] = p | 0xFF000000;
+                }
+            }
+            if (bins != null) histogram.merge(bins);
+        };
+        if (executor != null) {
+            executor.forEach(height, kernel);
+        } else {
+            kernel.run(0, height);
+        }
+    }
+
+    private boolean call(FutureTask<Boolean> task) {
+        handler.post(task);
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            Log.e(TAG, "GPU colorize failed", e.getCause());
+            return false;
+        }
+    }
+
+    public void release() {
+        handler.removeCallbacks(trimTask);
+        handler.post(() -> {
+            if (eglCore == null) return;
+            if (program != 0) GLES20.glDeleteProgram(program);
+            GLES20.glDeleteTextures(textures.length, textures, 0);
+            GLES20.glDeleteFramebuffers(1, framebuffer, 0);
+            if (es3) GLES30.glDeleteBuffers(1, pbo, 0);
+            eglCore.releaseSurface(surface);
+            eglCore.release();
+            eglCore = null;
+        });
+        thread.quitSafely();
+    }
+}
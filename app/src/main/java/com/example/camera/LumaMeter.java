@@ -0,0 +1,239 @@
+package com.example.camera;
+
+import android.opengl.GLES11Ext;
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.camera.imaging.LumaHistogram;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * GPU 预览测光
+ * 将相机 OES 纹理的亮度缩小绘制到 64×64 的离屏 FBO（每个输出像素取 2×2 采样均值），
+ * 再回读统计均值与直方图。ES 3.0 下经双缓冲 PBO 异步回读，结果晚一个测光周期，不阻塞渲染管线；
+ * ES 2.0 下直接 glReadPixels（数据量只有 16KB）。所有方法在 GL 线程调用。
+ */
+public class LumaMeter {
+
+    private static final String TAG = "LumaMeter";
+
+    public static final int METER_SIZE = 64;
+    private static final int BYTES = METER_SIZE * METER_SIZE * 4;
+
+    public interface OnLumaMeteredListener {
+        /** 在 GL 线程回调 */
+        void onLumaMetered(LumaHistogram histogram);
+    }
+
+    private static final String VERTEX_SHADER =
+            "attribute vec4 aPosition;\n" +
+            "attribute vec2 aTexCoord;\n" +
+            "uniform mat4 uTexMatrix;\n" +
+            "varying vec2 vTexCoord;\n" +
+            "void main() {\n" +
+            "    gl_Position = aPosition;\n" +
+            "    vTexCoord = (uTexMatrix * vec4(aTexCoord, 0.0, 1.0)).xy;\n" +
+            "}\n";
+
+    // 2×2 采样取均值后输出亮度（系数与 CPU 端一致），写入 R 通道
+    private static final String FRAGMENT_SHADER =
+            "#extension GL_OES_EGL_image_external : require\n" +
+            "precision mediump float;\n" +
+            "uniform samplerExternalOES uTexture;\n" +
+            "uniform vec2 uTexelOffset;\n" +
+            "varying vec2 vTexCoord;\n" +
+            "const vec3 W = vec3(77.0, 150.0, 29.0) / 256.0;\n" +
+            "void main() {\n" +
+            "    vec3 c = texture2D(uTexture, vTexCoord + vec2(-uTexelOffset.x, -uTexelOffset.y)).rgb\n" +
+            "           + texture2D(uTexture, vTexCoord + vec2( uTexelOffset.x, -uTexelOffset.y)).rgb\n" +
+            "           + texture2D(uTexture, vTexCoord + vec2(-uTexelOffset.x,  uTexelOffset.y)).rgb\n" +
+            "           + texture2D(uTexture, vTexCoord + vec2( uTexelOffset.x,  uTexelOffset.y)).rgb;\n" +
+            "    float luma = dot(c * 0.25, W);\n" +
+            "    gl_FragColor = vec4(luma, luma, luma, 1.0);\n" +
+            "}\n";
+
+    private static final float[] QUAD = {-1f, -1f, 1f, -1f, -1f, 1f, 1f, 1f};
+    private static final float[] TEX_COORDS = {0f, 0f, 1f, 0f, 0f, 1f, 1f, 1f};
+
+    private final FloatBuffer quadBuffer;
+    private final FloatBuffer texCoordBuffer;
+    private final ByteBuffer pixels = ByteBuffer.allocateDirect(BYTES).order(ByteOrder.nativeOrder());
+    private final int[] counts = new int[LumaHistogram.BINS];
+
+    private int program;
+    private int aPositionHandle;
+    private int aTexCoordHandle;
+    private int uTextureHandle;
+    private int uTexMatrixHandle;
+    private int uTexelOffsetHandle;
+
+    private final int[] framebuffer = new int[1];
+    private final int[] colorTexture = new int[1];
+
+    // ES 3.0：两个 PBO 轮流接收 glReadPixels，下一周期再映射读取
+    private boolean usePbo;
+    private final int[] pbos = new int[2];
+    private int pboIndex;
+    private boolean pboPending;
+
+    private volatile long intervalMs = 200;
+    private long lastMeterMs;
+    private volatile OnLumaMeteredListener listener;
+
+    public LumaMeter() {
+        quadBuffer = ByteBuffer.allocateDirect(QUAD.length * 4)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        quadBuffer.put(QUAD).position(0);
+        texCoordBuffer = ByteBuffer.allocateDirect(TEX_COORDS.length * 4)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        texCoordBuffer.put(TEX_COORDS).position(0);
+    }
+
+    public void setListener(OnLumaMeteredListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 测光间隔（毫秒），≤ 0 时停止测光
+     */
+    public void setIntervalMs(long intervalMs) {
+        this.intervalMs = intervalMs;
+    }
+
+    /**
+     * 在 onContextCreated 中调用（上下文重建后 GL 对象需要重新创建）
+     * @param es3 上下文是否为 OpenGL ES 3.0+，决定是否使用 PBO 异步回读
+     */
+    public void init(boolean es3) {
+        program = ShaderUtils.createProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+        aPositionHandle    = GLES20.glGetAttribLocation(program, "aPosition");
+        aTexCoordHandle    = GLES20.glGetAttribLocation(program, "aTexCoord");
+        uTextureHandle     = GLES20.glGetUniformLocation(program, "uTexture");
+        uTexMatrixHandle   = GLES20.glGetUniformLocation(program, "uTexMatrix");
+        uTexelOffsetHandle = GLES20.glGetUniformLocation(program, "uTexelOffset");
+
+        GLES20.glGenTextures(1, colorTexture, 0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, colorTexture[0]);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_NEAREST);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_NEAREST);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, METER_SIZE, METER_SIZE, 0,
+                GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, null);
+
+        GLES20.glGenFramebuffers(1, framebuffer, 0);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, framebuffer[0]);
+        GLES20.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0,
+                GLES20.GL_TEXTURE_2D, colorTexture[0], 0);
+        int status = GLES20.glCheckFramebufferStatus(GLES20.GL_FRAMEBUFFER);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        if (status != GLES20.GL_FRAMEBUFFER_COMPLETE) {
+            Log.e(TAG, "Metering framebuffer incomplete: 0x" + Integer.toHexString(status));
+            program = 0;
+            return;
+        }
+
+        usePbo = es3;
+        pboPending = false;
+        if (usePbo) {
+            GLES30.glGenBuffers(2, pbos, 0);
+            for (int pbo : pbos) {
+                GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, pbo);
+                GLES30.glBufferData(GLES30.GL_PIXEL_PACK_BUFFER, BYTES, null, GLES30.GL_STREAM_READ);
+            }
+            GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, 0);
+        }
+        Log.d(TAG, "Luma meter ready, PBO readback: " + usePbo);
+    }
+
+    /**
+     * 在绘制新相机帧后调用；未到测光间隔时直接返回。
+     * 调用后帧缓冲恢复为默认帧缓冲，视口恢复为 viewWidth × viewHeight。
+     */
+    public void meter(int oesTextureId, float[] texMatrix, int viewWidth, int viewHeight) {
+        long interval = intervalMs;
+        if (program == 0 || interval <= 0 || listener == null) return;
+        long now = SystemClock.elapsedRealtime();
+        if (now - lastMeterMs < interval) return;
+        lastMeterMs = now;
+
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, framebuffer[0]);
+        GLES20.glViewport(0, 0, METER_SIZE, METER_SIZE);
+        GLES20.glUseProgram(program);
+
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, oesTextureId);
+        GLES20.glUniform1i(uTextureHandle, 0);
+        GLES20.glUniformMatrix4fv(uTexMatrixHandle, 1, false, texMatrix, 0);
+        // 每个输出像素覆盖约 (1/64)² 的源区域，四个采样点取在其四分之一处
+        GLES20.glUniform2f(uTexelOffsetHandle, 0.25f / METER_SIZE, 0.25f / METER_SIZE);
+
+        GLES20.glEnableVertexAttribArray(aPositionHandle);
+        GLES20.glVertexAttribPointer(aPositionHandle, 2, GLES20.GL_FLOAT, false, 0, quadBuffer);
+        GLES20.glEnableVertexAttribArray(aTexCoordHandle);
+        GLES20.glVertexAttribPointer(aTexCoordHandle, 2, GLES20.GL_FLOAT, false, 0, texCoordBuffer);
+        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+        GLES20.glDisableVertexAttribArray(aPositionHandle);
+        GLES20.glDisableVertexAttribArray(aTexCoordHandle);
+
+        if (usePbo) {
+            readBackAsync();
+        } else {
+            pixels.clear();
+            GLES20.glReadPixels(0, 0, METER_SIZE, METER_SIZE, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, pixels);
+            publish(pixels);
+        }
+
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        GLES20.glViewport(0, 0, viewWidth, viewHeight);
+    }
+
+    /** 本周期读入一个 PBO，映射上一周期的 PBO 读取结果 */
+    private void readBackAsync() {
+        GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, pbos[pboIndex]);
+        GLES30.glReadPixels(0, 0, METER_SIZE, METER_SIZE, GLES30.GL_RGBA, GLES30.GL_UNSIGNED_BYTE, 0);
+
+        int previous = pboIndex ^ 1;
+        if (pboPending) {
+            GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, pbos[previous]);
+            ByteBuffer mapped = (ByteBuffer) GLES30.glMapBufferRange(GLES30.GL_PIXEL_PACK_BUFFER,
+                    0, BYTES, GLES30.GL_MAP_READ_BIT);
+            if (mapped != null) {
+                publish(mapped.order(ByteOrder.nativeOrder()));
+                GLES30.glUnmapBuffer(GLES30.GL_PIXEL_PACK_BUFFER);
+            }
+        }
+        GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, 0);
+        pboPending = true;
+        pboIndex = previous;
+    }
+
+    /** 统计 R 通道（亮度）直方图并回调 */
+    private void publish(ByteBuffer rgba) {
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < BYTES; i += 4) {
+            counts[rgba.get(i) & 0xFF]++;
+        }
+        LumaHistogram histogram = new LumaHistogram();
+        histogram.merge(counts);
+        OnLumaMeteredListener l = listener;
+        if (l != null) l.onLumaMetered(histogram);
+    }
+
+    public void release() {
+        if (program != 0) {
+            GLES20.glDeleteProgram(program);
+            program = 0;
+        }
+        GLES20.glDeleteFramebuffers(1, framebuffer, 0);
+        GLES20.glDeleteTextures(1, colorTexture, 0);
+        if (usePbo) GLES30.glDeleteBuffers(2, pbos, 0);
+        pboPending = false;
+    }
+}
@@ -5,15 +5,14 @@ import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.LinearGradient;
-import android.graphics.Matrix;
 import android.graphics.Paint;
-import android.graphics.Shader;
 import android.graphics.SurfaceTexture;
-import android.opengl.GLSurfaceView;
 import android.os.Bundle;
 import android.os.Environment;
+import android.os.SystemClock;
 import android.util.Log;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
 import android.widget.Button;
 import android.widget.ImageView;
 import android.widget.SeekBar;
@@ -23,30 +22,61 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.camera.camera2.interop.Camera2CameraControl;
-import androidx.camera.camera2.interop.CaptureRequestOptions;
+import androidx.camera.camera2.interop.Camera2Interop;
 import androidx.camera.core.Camera;
 import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ExtendableBuilder;
+import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.ImageCapture;
 import androidx.camera.core.ImageCaptureException;
 import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
+import androidx.camera.core.resolutionselector.ResolutionSelector;
+import androidx.camera.core.resolutionselector.ResolutionStrategy;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.exifinterface.media.ExifInterface;
 
+import android.hardware.camera2.CameraCaptureSession;
 import android.hardware.camera2.CaptureRequest;
-
+import android.hardware.camera2.CaptureResult;
+import android.hardware.camera2.TotalCaptureResult;
+
+import com.example.camera.imaging.AutoExposureController;
+import com.example.camera.imaging.AutoExposureLoop;
+import com.example.camera.imaging.CaptureMetadataRing;
+import com.example.camera.imaging.ColorMap;
+import com.example.camera.imaging.ExposureBracket;
+import com.example.camera.imaging.IntBufferPool;
+import com.example.camera.imaging.LegendAnnotation;
+import com.example.camera.imaging.LegendRenderer;
+import com.example.camera.imaging.LumaHistogram;
+import com.example.camera.imaging.Luminance;
+import com.example.camera.imaging.LuminanceCalibration;
+import com.example.camera.imaging.PseudoColorRenderer;
+import com.example.camera.imaging.RadianceMerger;
+import com.example.camera.imaging.RowBandExecutor;
+import com.example.camera.imaging.StagedPipeline;
+import com.example.camera.model.CaptureJob;
 import com.google.common.util.concurrent.ListenableFuture;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class MainActivity extends AppCompatActivity {
 
@@ -54,44 +84,142 @@ public class MainActivity extends AppCompatActivity {
     private static final int REQUEST_CAMERA_PERMISSION = 1;
 
     // UI 组件
-    private GLSurfaceView glSurfaceView;
+    private SurfaceView previewSurfaceView;
     private Button captureButton;
+    private Button recordButton;
+    private Button bracketButton;
     private ImageView imageView;
     private TextView tvBrightnessValue;
+    private TextView tvLiveLuma;
     private TextView tvExposureLabel;
     private TextView tvIsoLabel;
     private TextView tvBrightnessLabel;
     private SeekBar seekBarBrightness, seekBarIso, seekBarExposure;
 
-    // OpenGL ES 渲染器
+    // OpenGL ES 渲染器，在独立的 EGL 渲染线程上由相机帧驱动重绘
     private CameraRenderer cameraRenderer;
+    private GLRenderThread renderThread;
+    private GLRenderThread.Output screenOutput;
+    private FrameScheduler frameScheduler;
+    private float previewTargetFps = 0;   // 预览帧率上限，0 表示跟随相机
+    private long lumaMeterIntervalMs = 250;   // 预览测光间隔，0 表示关闭
+
+    // 按实测渲染耗时自动升降预览分辨率（单帧预算 8 ms）
+    private final PreviewResolutionPolicy resolutionPolicy =
+            new PreviewResolutionPolicy(8f, new android.util.Size(1280, 960));
 
     // CameraX 组件
     private ProcessCameraProvider cameraProvider;
     private Camera camera;
     private ImageCapture imageCapture;
+    private ImageAnalysis imageAnalysis;
     private Preview preview;
 
+    // 拍照模式：JPEG（ImageCapture）或 YUV（ImageAnalysis 的 Y 平面，跳过 JPEG 解码）
+    private boolean yuvCapture = false;
+    private boolean saveOriginal = true;   // YUV 模式下是否另存原图 JPEG
+    // YUV 模式下等待分析器取帧的拍照任务
+    private final AtomicReference<CaptureJob> pendingYuvCapture = new AtomicReference<>();
+
     // 相机参数（通过 Camera2 Interop 手动控制）
     private android.util.Range<Integer> isoRange;
     private android.util.Range<Long> exposureRange;
     private float aperture = 1.8f;
+    private int sensorOrientation = 90;   // 传感器方向，决定拍照结果的旋转角度
 
-    // 当前手动参数值
-    private int currentIso = -1;
-    private long currentExposure = -1;
+    // 当前曝光参数（滑条或自动曝光线程写入）
+    private volatile int currentIso = -1;
+    private volatile long currentExposure = -1;
+    private volatile boolean manualExposureApplied;   // 是否已下发过手动参数，重新绑定后需恢复
+    private String cameraRangesId;   // 已读取参数范围的相机，重新绑定同一相机时不再重置参数
 
     private final Executor captureExecutor = Executors.newSingleThreadExecutor();
 
+    // 逐帧实际拍摄参数（CaptureResult），拍照时按传感器时间戳取回，由此计算 BV
+    private final CaptureMetadataRing captureMetadata = new CaptureMetadataRing(32);
+    private long captureMetadataToleranceNs = 50_000_000L;   // 时间戳不完全一致时允许的偏差
+    private final CameraCaptureSession.CaptureCallback captureResultCallback =
+            new CameraCaptureSession.CaptureCallback() {
+                @Override
+                public void onCaptureCompleted(@NonNull CameraCaptureSession session,
+                                               @NonNull CaptureRequest request,
+                                               @NonNull TotalCaptureResult result) {
+                    recordCaptureResult(result);
+                }
+            };
+
+    // 手动曝光参数下发通道（合并滑条拖动产生的连续更新）
+    private CameraParameterChannel parameterChannel;
+
+    // 软件自动曝光：预览测光驱动 ISO / 曝光闭环调节，在独立线程计算（长按实时亮度切换）
+    private volatile boolean autoExposure = false;
+    private volatile AutoExposureLoop aeLoop;   // 仅在 aeExecutor 调用
+    private final CaptureMetadataRing.Frame aeMetadataFrame = new CaptureMetadataRing.Frame();   // 仅在 aeExecutor 访问
+    private final Executor aeExecutor = Executors.newSingleThreadExecutor();
+
+    // 包围曝光 HDR：在 ISO × 曝光范围内等 EV 间隔拍 N 帧，逐帧合成到浮点辐照度图
+    private int bracketFrames = 5;
+    private long bracketMaxExposureNs = 250_000_000L;   // 单帧最长曝光，限制整组耗时
+    private boolean bracketing;   // 仅在主线程访问
+    // 包围前的曝光状态，结束后原样恢复（仅在主线程访问）
+    private boolean preBracketAutoExposure;
+    private boolean preBracketManualApplied;
+    private int preBracketIso;
+    private long preBracketExposure;
+
+    // 预览分辨率切换只替换 Preview 用例；有拍照在途时推迟到拍照结束（仅在主线程访问）
+    private int capturesInFlight;
+    private boolean previewRebindPending;
+
+    // 伪彩色录像：渲染线程直接绘制到编码器输入 Surface（竖屏 3:4）
+    private int recordWidth = 720;
+    private int recordHeight = 960;
+    private int recordBitRate = 8_000_000;
+    private VideoRecorder videoRecorder;
+    private GLRenderThread.Output recordOutput;
+    private final Executor recordExecutor = Executors.newSingleThreadExecutor();
+
+    // 伪彩色查找表（预览、拍照结果与图例共用），点击预览循环切换
+    private static final ColorMap[] COLOR_MAPS = {
+            ColorMap.isolux(), ColorMap.jet(), ColorMap.turbo(), ColorMap.grayscale()
+    };
+    private volatile ColorMap colorMap = COLOR_MAPS[0];
+
+    // 多核并行伪彩色处理（关闭时在流水线渲染线程上顺序处理）
+    private final RowBandExecutor rowBandExecutor = RowBandExecutor.getDefault();
+    private boolean parallelColorize = true;
+
+    // 全分辨率拍照优先在 GPU 上伪彩色化；超出纹理尺寸上限或失败时退回上面的 CPU 内核
+    private boolean gpuColorize = true;
+    private GpuColorizer gpuColorizer;
+
+    // 像素数组与位图复用池（各占堆上限的 1/4）
+    private final IntBufferPool intBufferPool = new IntBufferPool(Runtime.getRuntime().maxMemory() / 4);
+    private final BitmapPool bitmapPool = new BitmapPool(Runtime.getRuntime().maxMemory() / 4);
+    private Bitmap displayedBitmap;   // imageView 当前显示的拍照结果
+    private CaptureJob displayedJob;  // displayedBitmap 所属的流水线任务（快速结果为 null）
+
+    // 拍照处理流水线：各阶段独立的有界队列与工作线程，解码阶段满时按该策略处理新拍照
+    private static final String STAGE_DECODE = "decode";
+    private static final String STAGE_ANALYZE = "analyze";
+    private static final String STAGE_RENDER = "render";
+    private static final String STAGE_ENCODE = "encode";
+    private static final String STAGE_PERSIST = "persist";
+    private final StagedPipeline.OverflowPolicy captureOverflowPolicy = StagedPipeline.OverflowPolicy.REJECT;
+    private final StagedPipeline<CaptureJob> capturePipeline = buildCapturePipeline();
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        glSurfaceView     = findViewById(R.id.gl_surface_view);
+        previewSurfaceView = findViewById(R.id.preview_surface_view);
         captureButton     = findViewById(R.id.btn);
+        recordButton      = findViewById(R.id.btn_record);
+        bracketButton     = findViewById(R.id.btn_bracket);
         imageView         = findViewById(R.id.iv);
         tvBrightnessValue = findViewById(R.id.tv_display_value);
+        tvLiveLuma        = findViewById(R.id.tv_live_luma);
         tvExposureLabel   = findViewById(R.id.tv_exposure);
         tvIsoLabel        = findViewById(R.id.tv_iso);
         tvBrightnessLabel = findViewById(R.id.tv_brightness_label);
@@ -99,20 +227,37 @@ public class MainActivity extends AppCompatActivity {
         seekBarIso        = findViewById(R.id.seekBarIso);
         seekBarExposure   = findViewById(R.id.seekBarExposure);
 
-        setupGLSurfaceView();
+        parameterChannel = new CameraParameterChannel(ContextCompat.getMainExecutor(this));
+        captureExecutor.execute(this::loadLuminanceCalibration);
+        setupRenderThread();
         setupSeekBars();
         captureButton.setOnClickListener(v -> takePicture());
+        recordButton.setOnClickListener(v -> toggleRecording());
+        bracketButton.setOnClickListener(v -> startBracketCapture());
+        captureButton.setOnLongClickListener(v -> {
+            toggleCaptureFormat();
+            return true;
+        });
+        tvLiveLuma.setOnLongClickListener(v -> {
+            setAutoExposure(!autoExposure);
+            return true;
+        });
+        previewSurfaceView.setOnClickListener(v -> cycleColorMap());
+        previewSurfaceView.setOnLongClickListener(v -> {
+            showPreviewFilterDialog();
+            return true;
+        });
 
         // 在布局完成后根据宽度设置预览高度 = 宽度 × 4/3（竖屏相机比例）
-        glSurfaceView.getViewTreeObserver().addOnGlobalLayoutListener(new android.view.ViewTreeObserver.OnGlobalLayoutListener() {
+        previewSurfaceView.getViewTreeObserver().addOnGlobalLayoutListener(new android.view.ViewTreeObserver.OnGlobalLayoutListener() {
             @Override
             public void onGlobalLayout() {
-                glSurfaceView.getViewTreeObserver().removeOnGlobalLayoutListener(this);
-                int w = glSurfaceView.getWidth();
+                previewSurfaceView.getViewTreeObserver().removeOnGlobalLayoutListener(this);
+                int w = previewSurfaceView.getWidth();
                 if (w > 0) {
-                    android.view.ViewGroup.LayoutParams lp = glSurfaceView.getLayoutParams();
+                    android.view.ViewGroup.LayoutParams lp = previewSurfaceView.getLayoutParams();
                     lp.height = w * 4 / 3;
-                    glSurfaceView.setLayoutParams(lp);
+                    previewSurfaceView.setLayoutParams(lp);
                 }
             }
         });
@@ -130,21 +275,125 @@ public class MainActivity extends AppCompatActivity {
     // OpenGL ES 初始化
     // -------------------------------------------------------------------------
 
-    private void setupGLSurfaceView() {
-        glSurfaceView.setEGLContextClientVersion(2);
-        glSurfaceView.setEGLConfigChooser(8, 8, 8, 8, 16, 0);
-        glSurfaceView.getHolder().setFormat(android.graphics.PixelFormat.RGBA_8888);
+    private void setupRenderThread() {
+        // 着色器程序二进制缓存：冷启动创建上下文时跳过编译链接
+        ShaderUtils.setProgramCache(new ProgramCache(new File(getCodeCacheDir(), "programs")));
 
         cameraRenderer = new CameraRenderer();
+        cameraRenderer.setColorMap(colorMap);
+        // 只在相机出新帧或 uniform 变化时绘制，静止时不占用 GPU
+        frameScheduler = new FrameScheduler(() -> {
+            GLRenderThread thread = renderThread;
+            if (thread != null) thread.requestRender();
+        });
+        frameScheduler.setTargetFps(previewTargetFps);
+        cameraRenderer.setFrameScheduler(frameScheduler);
+        cameraRenderer.setOnLumaMeteredListener(this::onPreviewLumaMetered, lumaMeterIntervalMs);
+        cameraRenderer.setResolutionPolicy(resolutionPolicy);
+        // GL 线程回调：按新的预览分辨率重新绑定 Preview
+        resolutionPolicy.setListener(size -> runOnUiThread(this::onPreviewResolutionChanged));
         cameraRenderer.setOnSurfaceTextureAvailableListener(surfaceTexture -> {
             // GL 线程回调：SurfaceTexture 就绪后绑定到 CameraX Preview
             runOnUiThread(() -> bindCameraPreview(surfaceTexture));
         });
 
-        glSurfaceView.setRenderer(cameraRenderer);
-        glSurfaceView.setRenderMode(GLSurfaceView.RENDERMODE_CONTINUOUSLY);
+        // 上下文随 Activity 存活，窗口表面随 SurfaceView 创建和销毁
+        renderThread = new GLRenderThread(cameraRenderer, null);
+        gpuColorizer = new GpuColorizer(renderThread.getSharedContext());
+        previewSurfaceView.getHolder().setFormat(android.graphics.PixelFormat.RGBA_8888);
+        previewSurfaceView.getHolder().addCallback(new SurfaceHolder.Callback() {
+            @Override
+            public void surfaceCreated(@NonNull SurfaceHolder holder) {
+                android.graphics.Rect frame = holder.getSurfaceFrame();
+                screenOutput = renderThread.addOutput(holder.getSurface(),
+                        frame.width(), frame.height(), GLRenderThread.FLAG_PRIMARY);
+            }
+
+            @Override
+            public void surfaceChanged(@NonNull SurfaceHolder holder, int format, int width, int height) {
+                if (screenOutput != null) renderThread.resizeOutput(screenOutput, width, height);
+            }
+
+            @Override
+            public void surfaceDestroyed(@NonNull SurfaceHolder holder) {
+                if (screenOutput != null) {
+                    renderThread.removeOutput(screenOutput);
+                    screenOutput = null;
+                }
+            }
+        });
+    }
+
+    /** GL 线程回调：显示预览实时亮度（场景实测，而非 ISO × t 推算） */
+    private void onPreviewLumaMetered(LumaHistogram histogram) {
+        if (histogram.getTotal() == 0) return;
+        String text = String.format("Y = %.1f  (P5 %d / P95 %d)",
+                histogram.mean(), histogram.percentile(5), histogram.percentile(95));
+        runOnUiThread(() -> tvLiveLuma.setText(text));
+        if (autoExposure) aeExecutor.execute(() -> runAutoExposure(histogram));
+    }
+
+    // -------------------------------------------------------------------------
+    // 软件自动曝光
+    // -------------------------------------------------------------------------
+
+    /** 开关自动曝光；开启时从当前手动参数开始调节 */
+    private void setAutoExposure(boolean enabled) {
+        AutoExposureLoop loop = aeLoop;
+        if (enabled && loop == null) {
+            Toast.makeText(this, "相机不支持手动曝光", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (autoExposure == enabled) return;
+        autoExposure = enabled;
+        if (enabled) {
+            int iso = currentIso;
+            long exposure = currentExposure;
+            aeExecutor.execute(() -> loop.reset(iso, exposure));
+        }
+        Toast.makeText(this, enabled ? "自动曝光" : "手动曝光", Toast.LENGTH_SHORT).show();
+    }
+
+    /** aeExecutor：按一次测光结果调节 */
+    private void runAutoExposure(LumaHistogram histogram) {
+        AutoExposureLoop loop = aeLoop;
+        if (autoExposure && loop != null) loop.onMetered(histogram);
+    }
+
+    /**
+     * aeExecutor：参数通道空闲，且最新一帧的 CaptureResult 已是下发的 ISO / 曝光时间
+     * （HAL 可能取整，允许 2% 偏差；没有逐帧参数时只看通道）
+     */
+    private boolean isExposureApplied(int iso, long exposureNs) {
+        if (!parameterChannel.isIdle()) return false;
+        if (!captureMetadata.latest(aeMetadataFrame)) return true;
+        return Math.abs(aeMetadataFrame.getIso() - iso) <= iso * 0.02
+                && Math.abs(aeMetadataFrame.getExposureNs() - exposureNs) <= exposureNs * 0.02;
     }
 
+    /** 自动曝光回调（aeExecutor）：下发新参数，显示收敛状态 */
+    private final AutoExposureLoop.Listener aeListener = new AutoExposureLoop.Listener() {
+        @Override
+        public void onExposureChanged(AutoExposureController.Result result) {
+            currentIso = result.iso;
+            currentExposure = result.exposureNs;
+            applyCamera2Options();
+            updateBrightnessDisplay();
+        }
+
+        @Override
+        public void onStateChanged(AutoExposureController.Result result) {
+            Log.d(TAG, "AE " + result);
+            String iso = String.valueOf(result.iso);
+            String exposure = formatExposure(result.exposureNs);
+            runOnUiThread(() -> {
+                tvIsoLabel.setText(iso);
+                tvExposureLabel.setText(exposure);
+                tvBrightnessLabel.setText("AE " + AutoExposureLoop.describe(result.state));
+            });
+        }
+    };
+
     // -------------------------------------------------------------------------
     // CameraX 启动与绑定
     // -------------------------------------------------------------------------
@@ -170,35 +419,206 @@ public class MainActivity extends AppCompatActivity {
         if (cameraProvider == null) return;
 
         cameraProvider.unbindAll();
+        preview = buildPreview(surfaceTexture);
+
+        CameraSelector selector = CameraSelector.DEFAULT_BACK_CAMERA;
+
+        if (yuvCapture) {
+            // YUV 模式：以最高分辨率的 YUV_420_888 分析流代替 JPEG 拍照
+            imageCapture = null;
+            imageAnalysis = new ImageAnalysis.Builder()
+                    .setOutputImageFormat(ImageAnalysis.OUTPUT_IMAGE_FORMAT_YUV_420_888)
+                    .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                    .setResolutionSelector(new ResolutionSelector.Builder()
+                            .setResolutionStrategy(ResolutionStrategy.HIGHEST_AVAILABLE_STRATEGY)
+                            .build())
+                    .build();
+            imageAnalysis.setAnalyzer(captureExecutor, this::analyzeFrame);
+            camera = cameraProvider.bindToLifecycle(this, selector, preview, imageAnalysis);
+        } else {
+            imageAnalysis = null;
+            ImageCapture.Builder captureBuilder = new ImageCapture.Builder()
+                    .setCaptureMode(ImageCapture.CAPTURE_MODE_MAXIMIZE_QUALITY);
+            attachCaptureResultCallback(captureBuilder);   // 静态拍照请求的结果
+            imageCapture = captureBuilder.build();
+            camera = cameraProvider.bindToLifecycle(this, selector, preview, imageCapture);
+        }
 
-        // 将 GL SurfaceTexture 包装为 CameraX Preview.SurfaceProvider
-        surfaceTexture.setDefaultBufferSize(1280, 720);
-        android.view.Surface glSurface = new android.view.Surface(surfaceTexture);
+        // 读取相机参数范围（通过 Camera2 Interop），同一相机只初始化一次
+        readCameraRanges();
+        parameterChannel.setCamera(camera);
+        // 全部用例重新绑定后恢复之前下发的手动参数
+        if (manualExposureApplied) applyCamera2Options();
+    }
 
+    /** 将 GL SurfaceTexture 包装为 CameraX Preview，分辨率由 resolutionPolicy 决定 */
+    private Preview buildPreview(SurfaceTexture surfaceTexture) {
+        android.util.Size previewSize = resolutionPolicy.getSize();
+        surfaceTexture.setDefaultBufferSize(previewSize.getWidth(), previewSize.getHeight());
+
+        // 每次请求新建 Surface，CameraX 用完（回调 result）后释放，分辨率切换不累积
         Preview.SurfaceProvider surfaceProvider = request -> {
             android.util.Size resolution = request.getResolution();
             surfaceTexture.setDefaultBufferSize(resolution.getWidth(), resolution.getHeight());
+            android.view.Surface glSurface = new android.view.Surface(surfaceTexture);
             request.provideSurface(glSurface,
-                    ContextCompat.getMainExecutor(this), result -> {});
+                    ContextCompat.getMainExecutor(this), result -> glSurface.release());
             // 通知渲染器相机实际分辨率，用于宽高比校正
             // 后置相机传感器为横向，竖屏时宽高需交换
-            glSurfaceView.queueEvent(() ->
+            renderThread.queueEvent(() ->
                     cameraRenderer.setCameraAspect(resolution.getHeight(), resolution.getWidth()));
         };
 
-        preview = new Preview.Builder().build();
-        preview.setSurfaceProvider(surfaceProvider);
+        // 设备不支持该分辨率时取最接近的较低尺寸
+        Preview.Builder previewBuilder = new Preview.Builder()
+                .setResolutionSelector(new ResolutionSelector.Builder()
+                        .setResolutionStrategy(new ResolutionStrategy(previewSize,
+                                ResolutionStrategy.FALLBACK_RULE_CLOSEST_LOWER_THEN_HIGHER))
+                        .build());
+        attachCaptureResultCallback(previewBuilder);
+        Preview newPreview = previewBuilder.build();
+        newPreview.setSurfaceProvider(surfaceProvider);
+        return newPreview;
+    }
 
-        imageCapture = new ImageCapture.Builder()
-                .setCaptureMode(ImageCapture.CAPTURE_MODE_MAXIMIZE_QUALITY)
-                .build();
+    /**
+     * 只替换 Preview 用例：拍照 / 分析用例、其在途请求与相机参数不受影响
+     */
+    private void rebindPreview(SurfaceTexture surfaceTexture) {
+        if (cameraProvider == null || preview == null) {
+            bindCameraPreview(surfaceTexture);
+            return;
+        }
+        cameraProvider.unbind(preview);
+        preview = buildPreview(surfaceTexture);
+        camera = cameraProvider.bindToLifecycle(this, CameraSelector.DEFAULT_BACK_CAMERA, preview);
+        parameterChannel.setCamera(camera);
+    }
 
-        CameraSelector selector = CameraSelector.DEFAULT_BACK_CAMERA;
+    /** 主线程：预览分辨率档位变化，有拍照或包围曝光在途时推迟 */
+    private void onPreviewResolutionChanged() {
+        if (capturesInFlight > 0 || bracketing || pendingYuvCapture.get() != null) {
+            previewRebindPending = true;
+            return;
+        }
+        previewRebindPending = false;
+        SurfaceTexture st = cameraRenderer.getSurfaceTexture();
+        if (st != null) rebindPreview(st);
+    }
 
-        camera = cameraProvider.bindToLifecycle(this, selector, preview, imageCapture);
+    /** 主线程：拍照结束后执行被推迟的预览分辨率切换 */
+    private void runPendingPreviewRebind() {
+        if (previewRebindPending) onPreviewResolutionChanged();
+    }
 
-        // 读取相机参数范围（通过 Camera2 Interop）
-        readCameraRanges();
+    /** 主线程：一次 JPEG 拍照回调结束（成功或失败） */
+    private void onCaptureFinished() {
+        capturesInFlight--;
+        runPendingPreviewRebind();
+    }
+
+    /** 订阅逐帧 CaptureResult（Camera2 Interop） */
+    @androidx.camera.camera2.interop.ExperimentalCamera2Interop
+    private <T> void attachCaptureResultCallback(ExtendableBuilder<T> builder) {
+        new Camera2Interop.Extender<>(builder).setSessionCaptureCallback(captureResultCallback);
+    }
+
+    /** 相机回调线程：记录实际拍摄参数（写入预分配的环形缓冲） */
+    private void recordCaptureResult(TotalCaptureResult result) {
+        Long timestamp = result.get(CaptureResult.SENSOR_TIMESTAMP);
+        Integer iso = result.get(CaptureResult.SENSOR_SENSITIVITY);
+        Long exposure = result.get(CaptureResult.SENSOR_EXPOSURE_TIME);
+        if (timestamp == null || iso == null || exposure == null) return;
+        Float apertureValue = result.get(CaptureResult.LENS_APERTURE);
+        Float focusDistance = result.get(CaptureResult.LENS_FOCUS_DISTANCE);
+        Integer lensState = result.get(CaptureResult.LENS_STATE);
+        captureMetadata.put(timestamp, iso, exposure,
+                apertureValue != null ? apertureValue : aperture,
+                focusDistance != null ? focusDistance : 0f,
+                lensState != null ? lensState : CaptureMetadataRing.LENS_STATE_UNKNOWN);
+    }
+
+    /**
+     * 传感器时间戳对应帧的实际拍摄参数
+     * @return 没有对应帧时返回 null
+     */
+    private CaptureMetadataRing.Frame captureFrameAt(long sensorTimestampNs) {
+        CaptureMetadataRing.Frame frame = new CaptureMetadataRing.Frame();
+        return captureMetadata.get(sensorTimestampNs, captureMetadataToleranceNs, frame) ? frame : null;
+    }
+
+    /**
+     * 由实际参数计算 BV（APEX）
+     * @return 格式化的 BV，参数无效时返回 "N/A"
+     */
+    private static String formatBrightnessValue(CaptureMetadataRing.Frame frame) {
+        float bv = frame.brightnessValue();
+        Log.d(TAG, "Capture metadata " + frame + " -> BV " + bv);
+        return Float.isNaN(bv) ? "N/A" : String.format(Locale.US, "%.2f", bv);
+    }
+
+    // -------------------------------------------------------------------------
+    // 亮度标定
+    // -------------------------------------------------------------------------
+
+    /**
+     * 读取本机型的亮度标定表（后台线程）：
+     * 优先外部文件目录 calibration/<型号>.csv（便于现场更新），其次 assets/calibration/<型号>.csv；
+     * 都没有时使用 BV 经验公式
+     */
+    private void loadLuminanceCalibration() {
+        String model = android.os.Build.MODEL;
+        String fileName = model.replaceAll("[^A-Za-z0-9._-]", "_") + ".csv";
+        File dir = getExternalFilesDir("calibration");
+        File external = dir != null ? new File(dir, fileName) : null;
+        try (Reader reader = new InputStreamReader(external != null && external.isFile()
+                ? new FileInputStream(external)
+                : getAssets().open("calibration/" + fileName), StandardCharsets.UTF_8)) {
+            LuminanceCalibration calibration = LuminanceCalibration.parse(model, reader);
+            Luminance.setCalibration(calibration);
+            Log.i(TAG, "Luminance calibration loaded: " + fileName);
+        } catch (FileNotFoundException e) {
+            Log.i(TAG, "No luminance calibration for " + model + ", using BV formula");
+        } catch (IOException e) {
+            Log.w(TAG, "Invalid luminance calibration " + fileName, e);
+        }
+    }
+
+    /** 长按拍照按钮：在 JPEG 与 YUV 拍照模式之间切换并重新绑定 */
+    private void toggleCaptureFormat() {
+        yuvCapture = !yuvCapture;
+        Toast.makeText(this, yuvCapture ? "YUV 拍照模式" : "JPEG 拍照模式", Toast.LENGTH_SHORT).show();
+        SurfaceTexture st = cameraRenderer.getSurfaceTexture();
+        if (st != null) bindCameraPreview(st);
+    }
+
+    /** 切换到下一种色表，预览与之后的拍照结果同时生效 */
+    private void cycleColorMap() {
+        int next = 0;
+        for (int i = 0; i < COLOR_MAPS.length; i++) {
+            if (COLOR_MAPS[i] == colorMap) next = (i + 1) % COLOR_MAPS.length;
+        }
+        colorMap = COLOR_MAPS[next];
+        cameraRenderer.setColorMap(colorMap);
+        Toast.makeText(this, "色表: " + colorMap.getName(), Toast.LENGTH_SHORT).show();
+    }
+
+    /** 长按预览：选择启用的预览滤镜通道 */
+    private void showPreviewFilterDialog() {
+        final String[] passes = {
+                FilterGraph.PASS_SMOOTH, FilterGraph.PASS_CONTOURS, FilterGraph.PASS_HIGHLIGHT
+        };
+        String[] labels = {"平滑", "等照度线", "高亮亮区"};
+        boolean[] checked = new boolean[passes.length];
+        for (int i = 0; i < passes.length; i++) {
+            checked[i] = cameraRenderer.isFilterEnabled(passes[i]);
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("预览滤镜")
+                .setMultiChoiceItems(labels, checked,
+                        (dialog, which, isChecked) -> cameraRenderer.setFilterEnabled(passes[which], isChecked))
+                .setPositiveButton("确定", null)
+                .show();
     }
 
     @androidx.camera.camera2.interop.ExperimentalCamera2Interop
@@ -207,6 +627,10 @@ public class MainActivity extends AppCompatActivity {
         try {
             androidx.camera.camera2.interop.Camera2CameraInfo info =
                     androidx.camera.camera2.interop.Camera2CameraInfo.from(camera.getCameraInfo());
+            // 重新绑定同一相机时保留当前参数与自动曝光状态，滑条、标签与相机保持一致
+            String cameraId = info.getCameraId();
+            if (cameraId.equals(cameraRangesId)) return;
+            cameraRangesId = cameraId;
             isoRange = info.getCameraCharacteristic(
                     android.hardware.camera2.CameraCharacteristics.SENSOR_INFO_SENSITIVITY_RANGE);
             exposureRange = info.getCameraCharacteristic(
@@ -214,10 +638,22 @@ public class MainActivity extends AppCompatActivity {
             float[] apertures = info.getCameraCharacteristic(
                     android.hardware.camera2.CameraCharacteristics.LENS_INFO_AVAILABLE_APERTURES);
             if (apertures != null && apertures.length > 0) aperture = apertures[0];
+            Integer orientation = info.getCameraCharacteristic(
+                    android.hardware.camera2.CameraCharacteristics.SENSOR_ORIENTATION);
+            if (orientation != null) sensorOrientation = orientation;
 
             // 初始化默认值
             if (isoRange != null) currentIso = isoRange.getLower();
             if (exposureRange != null) currentExposure = exposureRange.getLower();
+
+            AutoExposureLoop loop = null;
+            if (isoRange != null && exposureRange != null) {
+                loop = new AutoExposureLoop(isoRange.getLower(), isoRange.getUpper(),
+                        exposureRange.getLower(), exposureRange.getUpper(), aeListener);
+                loop.setExposureProbe(this::isExposureApplied);
+                loop.reset(currentIso, currentExposure);
+            }
+            aeLoop = loop;
         } catch (Exception e) {
             Log.e(TAG, "Failed to read camera ranges", e);
         }
@@ -229,39 +665,27 @@ public class MainActivity extends AppCompatActivity {
 
     private void setupSeekBars() {
         seekBarIso.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
-            @Override public void onProgressChanged(SeekBar s, int p, boolean f) { updateIso(p); }
+            @Override public void onProgressChanged(SeekBar s, int p, boolean f) { if (f) setAutoExposure(false); updateIso(p); }
             @Override public void onStartTrackingTouch(SeekBar s) {}
             @Override public void onStopTrackingTouch(SeekBar s) {}
         });
         seekBarExposure.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
-            @Override public void onProgressChanged(SeekBar s, int p, boolean f) { updateExposure(p); }
+            @Override public void onProgressChanged(SeekBar s, int p, boolean f) { if (f) setAutoExposure(false); updateExposure(p); }
             @Override public void onStartTrackingTouch(SeekBar s) {}
             @Override public void onStopTrackingTouch(SeekBar s) {}
         });
         seekBarBrightness.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
-            @Override public void onProgressChanged(SeekBar s, int p, boolean f) { updateBrightness(p); }
+            @Override public void onProgressChanged(SeekBar s, int p, boolean f) { if (f) setAutoExposure(false); updateBrightness(p); }
             @Override public void onStartTrackingTouch(SeekBar s) {}
             @Override public void onStopTrackingTouch(SeekBar s) {}
         });
     }
 
+    /** 手动 ISO / 曝光经合并通道下发，拖动滑条时最多一个请求在途 */
     @androidx.camera.camera2.interop.ExperimentalCamera2Interop
     private void applyCamera2Options() {
-        if (camera == null) return;
-        try {
-            CaptureRequestOptions.Builder builder = new CaptureRequestOptions.Builder()
-                    .setCaptureRequestOption(CaptureRequest.CONTROL_AE_MODE,
-                            CaptureRequest.CONTROL_AE_MODE_OFF);
-            if (currentIso > 0)
-                builder.setCaptureRequestOption(CaptureRequest.SENSOR_SENSITIVITY, currentIso);
-            if (currentExposure > 0)
-                builder.setCaptureRequestOption(CaptureRequest.SENSOR_EXPOSURE_TIME, currentExposure);
-
-            Camera2CameraControl.from(camera.getCameraControl())
-                    .setCaptureRequestOptions(builder.build());
-        } catch (Exception e) {
-            Log.e(TAG, "applyCamera2Options failed", e);
-        }
+        manualExposureApplied = true;
+        parameterChannel.submit(CaptureRequest.CONTROL_AE_MODE_OFF, currentIso, currentExposure);
     }
 
     private void updateIso(int progress) {
@@ -282,14 +706,18 @@ public class MainActivity extends AppCompatActivity {
         seekBarBrightness.setProgress(0);
         applyCamera2Options();
         updateBrightnessDisplay();
-        double expSec = currentExposure / 1_000_000_000.0;
-        String expStr = expSec >= 1.0
-                ? String.format("%.2f s", expSec)
-                : String.format("1/%.0f s", 1.0 / expSec);
+        String expStr = formatExposure(currentExposure);
         runOnUiThread(() -> tvExposureLabel.setText(expStr));
         Log.d(TAG, "Exposure=" + currentExposure + " ns");
     }
 
+    private static String formatExposure(long exposureNs) {
+        double expSec = exposureNs / 1_000_000_000.0;
+        return expSec >= 1.0
+                ? String.format("%.2f s", expSec)
+                : String.format("1/%.0f s", 1.0 / expSec);
+    }
+
     private void updateBrightness(int progress) {
         // 亮度滑条：同时调整 ISO + 曝光，并更新 GL 亮度增益
         if (isoRange != null && exposureRange != null) {
@@ -334,68 +762,484 @@ public class MainActivity extends AppCompatActivity {
     // -------------------------------------------------------------------------
 
     private void takePicture() {
+        // 每次拍照各自记录按下时刻与缩略图尺寸，连拍时计时不会串到其他拍照上
+        CaptureJob job = newCaptureJob();
+        if (yuvCapture) {
+            // YUV 模式：由分析器取下一帧
+            if (imageAnalysis != null) pendingYuvCapture.set(job);
+            return;
+        }
         if (imageCapture == null) return;
+        capturesInFlight++;
         imageCapture.takePicture(captureExecutor, new ImageCapture.OnImageCapturedCallback() {
             @Override
             public void onCaptureSuccess(@NonNull ImageProxy imageProxy) {
-                processCapture(imageProxy);
-                imageProxy.close();
+                try {
+                    processCapture(imageProxy, job);
+                } finally {
+                    imageProxy.close();
+                    runOnUiThread(MainActivity.this::onCaptureFinished);
+                }
             }
 
             @Override
             public void onError(@NonNull ImageCaptureException exception) {
                 Log.e(TAG, "Capture failed", exception);
-                runOnUiThread(() ->
-                        Toast.makeText(MainActivity.this, "拍照失败", Toast.LENGTH_SHORT).show());
+                runOnUiThread(() -> {
+                    onCaptureFinished();
+                    Toast.makeText(MainActivity.this, "拍照失败", Toast.LENGTH_SHORT).show();
+                });
+            }
+        });
+    }
+
+    /** 渐进式结果：先按缩略图尺寸生成，计时从按下拍照开始 */
+    private CaptureJob newCaptureJob() {
+        return new CaptureJob(SystemClock.elapsedRealtime(),
+                Math.max(imageView.getWidth(), imageView.getHeight()));
+    }
+
+    /** JPEG 拍照回调：只拷贝数据并交给处理流水线，回调线程立即返回 */
+    private void processCapture(ImageProxy imageProxy, CaptureJob job) {
+        ByteBuffer buffer = imageProxy.getPlanes()[0].getBuffer();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+
+        job.setOriginalJpeg(bytes);
+        job.setSensorTimestampNs(imageProxy.getImageInfo().getTimestamp());
+        capturePipeline.submit(job);
+    }
+
+    /** ImageAnalysis 回调：仅在按下拍照后处理一帧 YUV 数据 */
+    private void analyzeFrame(ImageProxy image) {
+        try {
+            CaptureJob job = pendingYuvCapture.getAndSet(null);
+            if (job != null) {
+                try {
+                    processYuvCapture(image, job);
+                } finally {
+                    runOnUiThread(this::runPendingPreviewRebind);
+                }
+            }
+        } finally {
+            image.close();
+        }
+    }
+
+    /** YUV 拍照：渲染依赖帧数据，在分析线程完成后从编码阶段进入流水线 */
+    private void processYuvCapture(ImageProxy image, CaptureJob job) {
+        ImageProxy.PlaneProxy yPlane = image.getPlanes()[0];
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        // 第一阶段：隔行隔列抽取 Y 平面，按缩略图尺寸上色并立即显示
+        int step = BitmapPool.calculateInSampleSize(width, height, job.getPreviewTargetSize());
+        Bitmap quickBitmap = createPreviewImage(yPlane, width, height, step);
+        runOnUiThread(() -> showCaptureResult(quickBitmap));
+        job.setFirstResultMs(SystemClock.elapsedRealtime() - job.getRequestedAt());
+
+        // 第二阶段：Y 平面即亮度，全分辨率送入伪彩色与统计内核
+        CaptureMetadataRing.Frame frame = captureFrameAt(image.getImageInfo().getTimestamp());
+        if (frame != null) job.setCaptureExposure(frame.getIso(), frame.getExposureNs());
+        String bv = frame != null ? formatBrightnessValue(frame) : "N/A";
+        job.setPseudoBitmap(createPseudoColorImage(yPlane, width, height, bv,
+                job.getIso(), job.getExposureNs()), 2);
+        runOnUiThread(() -> showCaptureResult(job));
+
+        // 按需保存原图：此处只重新打包，JPEG 编码在编码阶段进行
+        if (saveOriginal) job.setNv21(YuvJpegWriter.toNv21(image), width, height);
+        // 分析线程同时承担测光与自动曝光，编码积压时不等待，直接放弃保存
+        if (!capturePipeline.offer(STAGE_ENCODE, job)) {
+            runOnUiThread(() -> Toast.makeText(this, "编码队列已满，本次拍照未保存", Toast.LENGTH_SHORT).show());
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // 包围曝光 HDR
+    // -------------------------------------------------------------------------
+
+    private void startBracketCapture() {
+        if (bracketing) return;
+        if (yuvCapture || imageCapture == null) {
+            Toast.makeText(this, "包围曝光仅支持 JPEG 拍照模式", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (isoRange == null || exposureRange == null) {
+            Toast.makeText(this, "相机不支持手动曝光", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        ExposureBracket bracket = ExposureBracket.plan(isoRange.getLower(), isoRange.getUpper(),
+                exposureRange.getLower(), exposureRange.getUpper(), bracketMaxExposureNs, bracketFrames);
+        preBracketAutoExposure = autoExposure;
+        preBracketManualApplied = manualExposureApplied;
+        preBracketIso = currentIso;
+        preBracketExposure = currentExposure;
+        setAutoExposure(false);
+        bracketing = true;
+        bracketButton.setEnabled(false);
+        captureBracketFrame(bracket, 0, new RadianceMerger[1], newCaptureJob());
+    }
+
+    /** 主线程：下发第 index 帧的参数，生效后拍照 */
+    private void captureBracketFrame(ExposureBracket bracket, int index, RadianceMerger[] merger,
+                                     CaptureJob job) {
+        parameterChannel.submit(CaptureRequest.CONTROL_AE_MODE_OFF,
+                bracket.getIso(index), bracket.getExposureNs(index));
+        parameterChannel.runWhenIdle(applied -> {
+            ImageCapture capture = imageCapture;
+            if (!applied || capture == null) {
+                Log.w(TAG, "Bracket frame " + index + " parameters not applied, abort");
+                finishBracketCapture(null);
+                return;
             }
+            capture.takePicture(captureExecutor, new ImageCapture.OnImageCapturedCallback() {
+                @Override
+                public void onCaptureSuccess(@NonNull ImageProxy imageProxy) {
+                    // 拍照线程：到达即合成，不保存单帧
+                    boolean merged;
+                    try {
+                        merged = mergeBracketFrame(imageProxy, bracket, index, merger);
+                    } finally {
+                        imageProxy.close();
+                    }
+                    if (!merged) {
+                        runOnUiThread(() -> finishBracketCapture(null));
+                    } else if (index + 1 < bracket.size()) {
+                        runOnUiThread(() -> captureBracketFrame(bracket, index + 1, merger, job));
+                    } else {
+                        renderBracketResult(merger[0], job);
+                        runOnUiThread(() -> finishBracketCapture(merger[0]));
+                    }
+                }
+
+                @Override
+                public void onError(@NonNull ImageCaptureException exception) {
+                    Log.e(TAG, "Bracket capture failed", exception);
+                    runOnUiThread(() -> finishBracketCapture(null));
+                }
+            });
         });
     }
 
-    private void processCapture(ImageProxy imageProxy) {
-        // 从 ImageProxy 获取 JPEG 字节
-        ImageProxy.PlaneProxy plane = imageProxy.getPlanes()[0];
-        ByteBuffer buffer = plane.getBuffer();
+    /**
+     * 解码一帧并累加到辐照度图；曝光量优先取该帧 CaptureResult 中的实际值
+     */
+    private boolean mergeBracketFrame(ImageProxy imageProxy, ExposureBracket bracket, int index,
+                                      RadianceMerger[] merger) {
+        ByteBuffer buffer = imageProxy.getPlanes()[0].getBuffer();
         byte[] bytes = new byte[buffer.remaining()];
         buffer.get(bytes);
+        Bitmap bitmap = bitmapPool.decodeByteArray(bytes);
+        if (bitmap == null) return false;
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        if (merger[0] == null) {
+            merger[0] = new RadianceMerger(width, height);
+        } else if (merger[0].getWidth() != width || merger[0].getHeight() != height) {
+            bitmapPool.release(bitmap);
+            return false;
+        }
+
+        int iso = bracket.getIso(index);
+        long exposureNs = bracket.getExposureNs(index);
+        CaptureMetadataRing.Frame frame = new CaptureMetadataRing.Frame();
+        if (captureMetadata.get(imageProxy.getImageInfo().getTimestamp(), captureMetadataToleranceNs, frame)) {
+            iso = frame.getIso();
+            exposureNs = frame.getExposureNs();
+        }
+
+        int[] pixels = intBufferPool.acquire(width * height);
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+        bitmapPool.release(bitmap);
+        merger[0].add(pixels, iso * (exposureNs / 1e9), parallelColorize ? rowBandExecutor : null);
+        intBufferPool.release(pixels);
+        Log.d(TAG, String.format("Bracket %d/%d merged: ISO %d, %.3f ms",
+                index + 1, bracket.size(), iso, exposureNs / 1e6));
+        return true;
+    }
+
+    /** 拍照线程：色调映射后上色，图例按合成后的辐照度范围标注，交给编码与保存 */
+    private void renderBracketResult(RadianceMerger merger, CaptureJob job) {
+        merger.finish();
+        int width = merger.getWidth();
+        int height = merger.getHeight();
+        byte[] tone = new byte[width * height];
+        merger.toneMap(tone);
+
+        // 色调映射后每个灰度对应的亮度（由辐照度换算 BV）
+        float[] luminanceRow = new float[LumaHistogram.BINS];
+        for (int z = 0; z < luminanceRow.length; z++) {
+            float levelBv = RadianceMerger.brightnessValue(merger.radianceAtLevel(z), aperture);
+            luminanceRow[z] = (float) Luminance.fromBrightnessValue(levelBv);
+        }
+        float midBv = RadianceMerger.brightnessValue(merger.radianceAtLevel(127.5), aperture);
+        String bv = String.format(Locale.US, "%.2f", midBv);
+
+        RowBandExecutor executor = parallelColorize ? rowBandExecutor : null;
+        ByteBuffer luma = ByteBuffer.wrap(tone);
+        Bitmap pseudoBitmap = composePseudoColorImage(width, height, bv, true, luminanceRow, "HDR",
+                (out, outWidth, map, histogram) -> PseudoColorRenderer.renderLuma(luma, width, 1,
+                        width, height, sensorOrientation, map, out, outWidth, histogram, executor));
+
+        job.setExifBrightness(bv);
+        job.setFirstResultMs(SystemClock.elapsedRealtime() - job.getRequestedAt());
+        job.setPseudoBitmap(pseudoBitmap, 2);
+        runOnUiThread(() -> showCaptureResult(job));
+        capturePipeline.submit(STAGE_ENCODE, job);
+    }
+
+    /** 主线程：恢复包围前的曝光状态 */
+    private void finishBracketCapture(RadianceMerger merger) {
+        bracketing = false;
+        bracketButton.setEnabled(true);
+        restorePreBracketExposure();
+        runPendingPreviewRebind();
+        if (merger == null) {
+            Toast.makeText(this, "包围曝光失败", Toast.LENGTH_SHORT).show();
+        } else {
+            Log.i(TAG, String.format("HDR merged %d frames, radiance %.3g ~ %.3g",
+                    merger.getFrameCount(), merger.getMinRadiance(), merger.getMaxRadiance()));
+        }
+    }
+
+    /**
+     * 包围前用过手动参数（含软件自动曝光）时恢复原参数，软件自动曝光从原参数继续调节；
+     * 否则交还相机自动曝光
+     */
+    @androidx.camera.camera2.interop.ExperimentalCamera2Interop
+    private void restorePreBracketExposure() {
+        currentIso = preBracketIso;
+        currentExposure = preBracketExposure;
+        if (preBracketManualApplied) {
+            applyCamera2Options();
+        } else {
+            manualExposureApplied = false;
+            parameterChannel.submit(CaptureRequest.CONTROL_AE_MODE_ON, 0, 0);
+        }
+        if (preBracketAutoExposure) setAutoExposure(true);
+    }
+
+    // -------------------------------------------------------------------------
+    // 伪彩色录像
+    // -------------------------------------------------------------------------
 
-        android.graphics.BitmapFactory.Options opts = new android.graphics.BitmapFactory.Options();
-        Bitmap originalBitmap = android.graphics.BitmapFactory.decodeByteArray(bytes, 0, bytes.length, opts);
-        if (originalBitmap == null) return;
+    private void toggleRecording() {
+        if (videoRecorder == null) {
+            startRecording();
+        } else {
+            stopRecording();
+        }
+    }
 
-        // 保存原始 JPEG
+    private void startRecording() {
         File dcimDir = new File(Environment.getExternalStoragePublicDirectory(
                 Environment.DIRECTORY_DCIM), "Camera");
         if (!dcimDir.exists()) dcimDir.mkdirs();
+        File file = new File(dcimDir, System.currentTimeMillis() + "_pseudo.mp4");
 
-        File originalFile = new File(dcimDir, System.currentTimeMillis() + "_original.jpg");
-        try (FileOutputStream fos = new FileOutputStream(originalFile)) {
-            fos.write(bytes);
-        } catch (IOException e) {
-            Log.e(TAG, "保存原始图像失败", e);
+        VideoRecorder recorder = new VideoRecorder(file, recordWidth, recordHeight, recordBitRate,
+                VideoRecorder.preferredMimeType(recordWidth, recordHeight));
+        try {
+            android.view.Surface input = recorder.start();
+            recordOutput = renderThread.addOutput(input, recordWidth, recordHeight,
+                    GLRenderThread.FLAG_RECORDER);
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Start recording failed", e);
+            recorder.stop();
+            Toast.makeText(this, "录像启动失败", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        videoRecorder = recorder;
+        recordButton.setText("停止");
+    }
+
+    private void stopRecording() {
+        VideoRecorder recorder = videoRecorder;
+        videoRecorder = null;
+        recordButton.setText("录像");
+        if (recordOutput != null) {
+            // 先停止向编码器输入绘制，再在后台结束编码并写完文件
+            renderThread.removeOutput(recordOutput);
+            recordOutput = null;
         }
+        recordExecutor.execute(() -> {
+            long durationMs = recorder.stop();
+            runOnUiThread(() -> Toast.makeText(this,
+                    String.format("已保存录像: %s（%.1f s）", recorder.getFile().getName(), durationMs / 1000f),
+                    Toast.LENGTH_SHORT).show());
+        });
+    }
+
+    // -------------------------------------------------------------------------
+    // 拍照处理流水线：解码 → 分析 → 渲染 → 编码 → 持久化
+    // -------------------------------------------------------------------------
+
+    private StagedPipeline<CaptureJob> buildCapturePipeline() {
+        return new StagedPipeline.Builder<CaptureJob>()
+                .addStage(STAGE_DECODE, 1, 2, captureOverflowPolicy, this::decodeCapture)
+                .addStage(STAGE_ANALYZE, 1, 2, StagedPipeline.OverflowPolicy.BLOCK, this::analyzeCapture)
+                // 渲染内部已按行带并行，单个工作线程即可占满各核
+                .addStage(STAGE_RENDER, 1, 1, StagedPipeline.OverflowPolicy.BLOCK, this::renderCapture)
+                .addStage(STAGE_ENCODE, 2, 2, StagedPipeline.OverflowPolicy.BLOCK, this::encodeCapture)
+                .addStage(STAGE_PERSIST, 1, 4, StagedPipeline.OverflowPolicy.BLOCK, this::persistCapture)
+                .setListener(new StagedPipeline.Listener<CaptureJob>() {
+                    @Override
+                    public void onDropped(String stage, CaptureJob job) {
+                        Log.w(TAG, "Capture dropped at stage " + stage);
+                        releaseCaptureJob(job);
+                        if (STAGE_DECODE.equals(stage)) {
+                            runOnUiThread(() -> Toast.makeText(MainActivity.this,
+                                    "处理队列已满，已丢弃本次拍照", Toast.LENGTH_SHORT).show());
+                        }
+                    }
+
+                    @Override
+                    public void onFailed(String stage, CaptureJob job, Throwable e) {
+                        Log.e(TAG, "Capture failed at stage " + stage, e);
+                        releaseCaptureJob(job);
+                    }
+                })
+                .build();
+    }
 
-        // 读取 EXIF 亮度
-        String exifBrightness = "N/A";
+    /** 解码：先按 ImageView 尺寸降采样出快速结果，再全分辨率解码 */
+    private boolean decodeCapture(CaptureJob job) {
+        byte[] bytes = job.getOriginalJpeg();
+        Bitmap sampledBitmap = bitmapPool.decodeByteArray(bytes, job.getPreviewTargetSize());
+        if (sampledBitmap == null) return false;
+        Bitmap quickBitmap = createPreviewImage(sampledBitmap);
+        bitmapPool.release(sampledBitmap);
+        runOnUiThread(() -> showCaptureResult(quickBitmap));
+        job.setFirstResultMs(SystemClock.elapsedRealtime() - job.getRequestedAt());
+
+        // 全分辨率解码（复用池中的位图作为 inBitmap）
+        job.setOriginalBitmap(bitmapPool.decodeByteArray(bytes));
+        return job.getOriginalBitmap() != null;
+    }
+
+    /**
+     * 分析：由该帧的 CaptureResult 计算 BV；
+     * 结果尚未到达或已被覆盖时，才从内存中的 JPEG 读取 EXIF 亮度
+     */
+    private boolean analyzeCapture(CaptureJob job) {
+        CaptureMetadataRing.Frame frame = captureFrameAt(job.getSensorTimestampNs());
+        if (frame != null) {
+            job.setCaptureExposure(frame.getIso(), frame.getExposureNs());
+            job.setExifBrightness(formatBrightnessValue(frame));
+            return true;
+        }
         try {
-            ExifInterface exif = new ExifInterface(originalFile.getAbsolutePath());
+            ExifInterface exif = new ExifInterface(new ByteArrayInputStream(job.getOriginalJpeg()));
             String val = exif.getAttribute(ExifInterface.TAG_BRIGHTNESS_VALUE);
-            if (val != null) exifBrightness = val;
+            if (val != null) job.setExifBrightness(val);
+            // 标定查表所需的 ISO 与曝光时间
+            int iso = exif.getAttributeInt(ExifInterface.TAG_PHOTOGRAPHIC_SENSITIVITY, 0);
+            double exposureSec = exif.getAttributeDouble(ExifInterface.TAG_EXPOSURE_TIME, 0);
+            job.setCaptureExposure(iso, (long) (exposureSec * 1e9));
         } catch (IOException e) {
-            exifBrightness = "读取失败";
+            job.setExifBrightness("读取失败");
         }
+        return true;
+    }
+
+    /** 渲染：伪彩色 + 图例 + 统计，完成后替换快速结果 */
+    private boolean renderCapture(CaptureJob job) {
+        Bitmap pseudoBitmap = createPseudoColorImage(job.getOriginalBitmap(), job.getExifBrightness(),
+                job.getIso(), job.getExposureNs());
+        bitmapPool.release(job.getOriginalBitmap());
+        job.setOriginalBitmap(null);
+        job.setPseudoBitmap(pseudoBitmap, 2);   // 显示与编码各持有一份
+        runOnUiThread(() -> showCaptureResult(job));
+        return true;
+    }
+
+    /** 编码：伪彩色结果压缩为 JPEG；YUV 模式下同时编码原图 */
+    private boolean encodeCapture(CaptureJob job) {
+        ByteArrayOutputStream pseudo = new ByteArrayOutputStream();
+        job.getPseudoBitmap().compress(Bitmap.CompressFormat.JPEG, 100, pseudo);
+        job.setPseudoJpeg(pseudo.toByteArray());
+        releasePseudoBitmap(job);
+
+        if (job.getNv21() != null) {
+            ByteArrayOutputStream original = new ByteArrayOutputStream();
+            if (YuvJpegWriter.write(job.getNv21(), job.getWidth(), job.getHeight(), 95, original)) {
+                job.setOriginalJpeg(original.toByteArray());
+            }
+            job.setNv21(null, 0, 0);
+        }
+        return true;
+    }
 
-        // 生成伪彩色图像并显示
-        Bitmap pseudoBitmap = createPseudoColorImage(originalBitmap, exifBrightness);
-        runOnUiThread(() -> imageView.setImageBitmap(pseudoBitmap));
+    /** 持久化：写入 DCIM/Camera，并分别报告首个结果耗时与保存完成耗时 */
+    private boolean persistCapture(CaptureJob job) {
+        File dcimDir = new File(Environment.getExternalStoragePublicDirectory(
+                Environment.DIRECTORY_DCIM), "Camera");
+        if (!dcimDir.exists()) dcimDir.mkdirs();
+
+        if (job.getOriginalJpeg() != null) {
+            File originalFile = new File(dcimDir, System.currentTimeMillis() + "_original.jpg");
+            try (FileOutputStream fos = new FileOutputStream(originalFile)) {
+                fos.write(job.getOriginalJpeg());
+            } catch (IOException e) {
+                Log.e(TAG, "保存原始图像失败", e);
+            }
+        }
 
-        // 保存伪彩色图像
         File pseudoFile = new File(dcimDir, System.currentTimeMillis() + "_pseudo.jpg");
         try (FileOutputStream fos = new FileOutputStream(pseudoFile)) {
-            pseudoBitmap.compress(Bitmap.CompressFormat.JPEG, 100, fos);
-            runOnUiThread(() -> Toast.makeText(this,
-                    "已保存: " + pseudoFile.getName(), Toast.LENGTH_SHORT).show());
+            fos.write(job.getPseudoJpeg());
         } catch (IOException e) {
             Log.e(TAG, "保存伪彩色图像失败", e);
+            return false;
+        }
+
+        long firstResultMs = job.getFirstResultMs();
+        long savedMs = SystemClock.elapsedRealtime() - job.getRequestedAt();
+        Log.i(TAG, "Capture timings: first result " + firstResultMs + " ms, saved " + savedMs + " ms");
+        runOnUiThread(() -> Toast.makeText(this,
+                String.format("已保存: %s（预览 %d ms / 保存 %d ms）",
+                        pseudoFile.getName(), firstResultMs, savedMs),
+                Toast.LENGTH_SHORT).show());
+        return false;
+    }
+
+    /** 任务被丢弃或失败时归还其持有的位图 */
+    private void releaseCaptureJob(CaptureJob job) {
+        if (job.getOriginalBitmap() != null) {
+            bitmapPool.release(job.getOriginalBitmap());
+            job.setOriginalBitmap(null);
+        }
+        // 尚未完成编码的伪彩色结果：释放编码方的持有
+        if (job.getPseudoBitmap() != null && job.getPseudoJpeg() == null) {
+            releasePseudoBitmap(job);
+        }
+    }
+
+    private void releasePseudoBitmap(CaptureJob job) {
+        if (job.releasePseudoBitmap()) bitmapPool.release(job.getPseudoBitmap());
+    }
+
+    /** 显示渐进式快速结果（不属于任何流水线任务） */
+    private void showCaptureResult(Bitmap bitmap) {
+        showCaptureResult(bitmap, null);
+    }
+
+    private void showCaptureResult(CaptureJob job) {
+        showCaptureResult(job.getPseudoBitmap(), job);
+    }
+
+    /** 显示新的拍照结果，被替换下来的位图释放显示方的持有（UI 线程调用） */
+    private void showCaptureResult(Bitmap bitmap, CaptureJob owner) {
+        Bitmap previous = displayedBitmap;
+        CaptureJob previousOwner = displayedJob;
+        imageView.setImageBitmap(bitmap);
+        displayedBitmap = bitmap;
+        displayedJob = owner;
+        if (previous == null || previous == bitmap) return;
+        if (previousOwner != null) {
+            releasePseudoBitmap(previousOwner);
+        } else {
+            bitmapPool.release(previous);
         }
     }
 
@@ -403,119 +1247,133 @@ public class MainActivity extends AppCompatActivity {
     // 伪彩色图像生成（CPU 端，用于拍照结果展示）
     // -------------------------------------------------------------------------
 
-    private Bitmap createPseudoColorImage(Bitmap originalBitmap, String exifBrightness) {
-        int width = originalBitmap.getWidth();
-        int height = originalBitmap.getHeight();
+    /** 向合成缓冲区写入伪彩色图像并累加亮度直方图 */
+    private interface FrameRenderer {
+        void render(int[] out, int outWidth, ColorMap map, LumaHistogram histogram);
+    }
 
-        int[] pixels = new int[width * height];
-        originalBitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-
-        for (int i = 0; i < pixels.length; i++) {
-            int gray = Color.red(pixels[i]);
-            int color;
-            if (gray < 64) {
-                color = Color.rgb(0, 0, gray * 4);
-            } else if (gray < 128) {
-                int blue = 255 - (gray - 64) * 4;
-                int green = (gray - 64) * 4;
-                color = Color.rgb(0, green, blue);
-            } else if (gray < 192) {
-                int green = 255 - (gray - 128) * 4;
-                int red = (gray - 128) * 4;
-                color = Color.rgb(red, green, 0);
-            } else {
-                int green = (gray - 192) * 4;
-                color = Color.rgb(255, green, 0);
-            }
-            pixels[i] = color;
+    /** 渐进式第一阶段：降采样图像只上色旋转，不绘制图例和统计 */
+    private Bitmap createPreviewImage(Bitmap sampledBitmap) {
+        int width = sampledBitmap.getWidth();
+        int height = sampledBitmap.getHeight();
+        int[] pixels = intBufferPool.acquire(width * height);
+        try {
+            sampledBitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+            return composePseudoColorImage(width, height, null, false, (out, outWidth, map, histogram) ->
+                    PseudoColorRenderer.render(pixels, width, height, sensorOrientation, map,
+                            out, outWidth, null, null));
+        } finally {
+            intBufferPool.release(pixels);
         }
+    }
 
-        Bitmap pseudoBitmap = Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+    /** 渐进式第一阶段（YUV）：以 step 为间隔抽取 Y 平面 */
+    private Bitmap createPreviewImage(ImageProxy.PlaneProxy yPlane, int width, int height, int step) {
+        int sampledWidth = width / step;
+        int sampledHeight = height / step;
+        return composePseudoColorImage(sampledWidth, sampledHeight, null, false, (out, outWidth, map, histogram) ->
+                PseudoColorRenderer.renderLuma(yPlane.getBuffer(), yPlane.getRowStride() * step,
+                        yPlane.getPixelStride() * step, sampledWidth, sampledHeight, sensorOrientation,
+                        map, out, outWidth, null, null));
+    }
 
-        // 旋转 90°
-        Matrix rotateMatrix = new Matrix();
-        rotateMatrix.postRotate(90);
-        Bitmap rotated = Bitmap.createBitmap(pseudoBitmap, 0, 0, width, height, rotateMatrix, true);
-        pseudoBitmap.recycle();
-        int rw = rotated.getWidth();
-        int rh = rotated.getHeight();
+    /**
+     * @param iso        拍摄 ISO，与 exposureNs 一起用于标定查表，未知时为 0
+     * @param exposureNs 拍摄曝光时间，未知时为 0
+     */
+    private Bitmap createPseudoColorImage(Bitmap originalBitmap, String exifBrightness,
+                                          int iso, long exposureNs) {
+        int width = originalBitmap.getWidth();
+        int height = originalBitmap.getHeight();
+        RowBandExecutor executor = parallelColorize ? rowBandExecutor : null;
+        float[] luminanceRow = Luminance.calibratedRow(iso, exposureNs);
+
+        return composePseudoColorImage(width, height, exifBrightness, true, luminanceRow, Luminance.calibrationSource(),
+                (out, outWidth, map, histogram) -> {
+                    if (gpuColorize && gpuColorizer.render(originalBitmap, sensorOrientation, map,
+                            out, outWidth, histogram, executor)) {
+                        return;
+                    }
+                    int[] pixels = intBufferPool.acquire(width * height);
+                    try {
+                        originalBitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+                        PseudoColorRenderer.render(pixels, width, height, sensorOrientation, map,
+                                out, outWidth, histogram, executor);
+                    } finally {
+                        intBufferPool.release(pixels);
+                    }
+                });
+    }
 
-        // 计算平均亮度
-        int[][] samplePoints = {
-                {width / 4, height / 4}, {width * 3 / 4, height / 4},
-                {width / 4, height * 3 / 4}, {width * 3 / 4, height * 3 / 4},
-                {width / 2, height / 2}
-        };
-        int sumR = 0, sumG = 0, sumB = 0;
-        for (int[] pt : samplePoints) {
-            int px = originalBitmap.getPixel(pt[0], pt[1]);
-            sumR += Color.red(px);
-            sumG += Color.green(px);
-            sumB += Color.blue(px);
-        }
-        int n = samplePoints.length;
-        int avgR = sumR / n, avgG = sumG / n, avgB = sumB / n;
-        double yValue = 0.299 * avgR + 0.587 * avgG + 0.114 * avgB;
-
-        // 解析 EXIF BV
-        float bv = Float.NaN;
-        if (exifBrightness != null && !exifBrightness.equals("N/A") && !exifBrightness.equals("读取失败")) {
-            try {
-                if (exifBrightness.contains("/")) {
-                    String[] parts = exifBrightness.split("/");
-                    bv = Float.parseFloat(parts[0]) / Float.parseFloat(parts[1]);
-                } else {
-                    bv = Float.parseFloat(exifBrightness);
-                }
-            } catch (Exception ignored) {}
-        }
+    /** 直接从 Y 平面生成伪彩色图像（YUV 拍照模式，无 JPEG 解码） */
+    private Bitmap createPseudoColorImage(ImageProxy.PlaneProxy yPlane, int width, int height,
+                                          String exifBrightness, int iso, long exposureNs) {
+        RowBandExecutor executor = parallelColorize ? rowBandExecutor : null;
+        float[] luminanceRow = Luminance.calibratedRow(iso, exposureNs);
+        return composePseudoColorImage(width, height, exifBrightness, true, luminanceRow, Luminance.calibrationSource(),
+                (out, outWidth, map, histogram) -> {
+                    if (gpuColorize && yPlane.getPixelStride() == 1
+                            && gpuColorizer.renderLuma(yPlane.getBuffer(), yPlane.getRowStride(), width, height,
+                                    sensorOrientation, map, out, outWidth, histogram, executor)) {
+                        return;
+                    }
+                    PseudoColorRenderer.renderLuma(yPlane.getBuffer(), yPlane.getRowStride(),
+                            yPlane.getPixelStride(), width, height, sensorOrientation, map,
+                            out, outWidth, histogram, executor);
+                });
+    }
 
-        double Lcenter = Float.isNaN(bv)
-                ? yValue / 255.0 * 400 + 50
-                : 2.9 * Math.exp(0.729 * bv);
+    private Bitmap composePseudoColorImage(int width, int height, String exifBrightness,
+                                           boolean withLegend, FrameRenderer renderer) {
+        return composePseudoColorImage(width, height, exifBrightness, withLegend, null, null, renderer);
+    }
 
-        // 图例
-        final int legendLevels = 4;
-        double delta = Lcenter * 0.25;
-        double[] lThresholds = new double[legendLevels + 1];
-        for (int i = 0; i <= legendLevels; i++)
-            lThresholds[i] = Lcenter - delta + (2 * delta) * i / legendLevels;
+    /**
+     * @param luminanceRow    每个灰度对应的亮度 (cd/m²)，图例与平均亮度按它查表；
+     *                        null 时以 BV 按经验公式估计
+     * @param luminanceSource 亮度表来源，显示在统计信息中
+     */
+    private Bitmap composePseudoColorImage(int width, int height, String exifBrightness,
+                                           boolean withLegend, float[] luminanceRow,
+                                           String luminanceSource, FrameRenderer renderer) {
+        // 伪彩色 + 按传感器方向旋转 + 右侧预留图例，一次写入最终像素缓冲区
+        final ColorMap colorMap = this.colorMap;   // 色表可能被切换，整张图使用同一份
+        final int legendWidth = withLegend ? LegendRenderer.LEGEND_WIDTH : 0;
+        int rw = PseudoColorRenderer.rotatedWidth(width, height, sensorOrientation);
+        int rh = PseudoColorRenderer.rotatedHeight(width, height, sensorOrientation);
+        int outWidth = rw + legendWidth;
+        int[] out = intBufferPool.acquire(outWidth * rh);
+        LumaHistogram histogram = new LumaHistogram();   // 上色同时统计全帧亮度
+        Bitmap finalBitmap;
+        try {
+            renderer.render(out, outWidth, colorMap, histogram);
+            if (withLegend) {
+                LegendRenderer.fillSwatches(out, outWidth, rw, legendWidth, rh, colorMap);
+            }
+            finalBitmap = bitmapPool.acquire(outWidth, rh);
+            finalBitmap.setPixels(out, 0, outWidth, 0, 0, outWidth, rh);
+        } finally {
+            intBufferPool.release(out);
+        }
+        if (!withLegend) return finalBitmap;
 
-        int[][] colorPairs = {
-                {Color.rgb(0, 0, 0),   Color.rgb(0, 0, 255)},
-                {Color.rgb(0, 0, 255), Color.rgb(0, 255, 0)},
-                {Color.rgb(0, 255, 0), Color.rgb(255, 255, 0)},
-                {Color.rgb(255, 255, 0), Color.rgb(255, 0, 0)}
-        };
+        LegendAnnotation annotation = LegendAnnotation.create(histogram, exifBrightness, colorMap.getBands(),
+                luminanceRow, luminanceSource);
 
-        final int legendWidth = 190;
-        Bitmap finalBitmap = Bitmap.createBitmap(rw + legendWidth, rh, Bitmap.Config.ARGB_8888);
         Canvas canvas = new Canvas(finalBitmap);
-        canvas.drawBitmap(rotated, 0, 0, null);
-        rotated.recycle();
-
         Paint paint = new Paint();
         paint.setAntiAlias(true);
         paint.setColor(Color.BLACK);
         paint.setTextSize(32);
         canvas.drawText("亮度L (cd/m²)", rw + 18, 48, paint);
 
-        int itemHeight = Math.max(rh / legendLevels, 50);
+        final int legendLevels = annotation.getLevels();
+        int itemHeight = LegendRenderer.itemHeight(rh, legendLevels);
         paint.setTextSize(40);
         for (int i = 0; i < legendLevels; i++) {
             int y = i * itemHeight;
-            LinearGradient gradient = new LinearGradient(
-                    rw + 15, y + 10, rw + legendWidth - 15, y + itemHeight - 10,
-                    new int[]{colorPairs[i][0], colorPairs[i][1]}, null, Shader.TileMode.CLAMP);
-            paint.setShader(gradient);
-            canvas.drawRect(rw + 10, y + 10, rw + legendWidth - 10, y + itemHeight - 10, paint);
-            paint.setShader(null);
-
-            String lLabel = String.format("L\n%.2f\n↓\n%.2f", lThresholds[i], lThresholds[i + 1]);
-            paint.setColor(Color.BLACK);
-            paint.setTextSize(40);
             float lineH = paint.getTextSize() + 8;
-            String[] lines = lLabel.split("\n");
+            String[] lines = annotation.labelLines(i);
             float totalH = lines.length * lineH;
             float textY = y + (itemHeight - totalH) / 2f + lineH;
             float textX = rw + legendWidth / 2f - paint.measureText("00.00") / 2f;
@@ -528,12 +1386,11 @@ public class MainActivity extends AppCompatActivity {
         textPaint.setTextSize(36);
         textPaint.setAntiAlias(true);
         textPaint.setShadowLayer(2.0f, 2, 2, Color.BLACK);
-        canvas.drawText(String.format("Avg RGB: R=%d, G=%d, B=%d", avgR, avgG, avgB), 30, 60, textPaint);
-        canvas.drawText(String.format("Gray = %.2f", yValue), 30, 110, textPaint);
-        canvas.drawText(String.format("EXIF BV = %s", exifBrightness), 30, 170, textPaint);
-        String lResult = Float.isNaN(bv) ? "L = N/A"
-                : String.format("L = 2.9 × exp(0.729×BV) = %.2f", 2.9 * Math.exp(0.729 * bv));
-        canvas.drawText(lResult, 30, 220, textPaint);
+        String[] statistics = annotation.getStatisticsLines();
+        canvas.drawText(statistics[0], 30, 60, textPaint);
+        canvas.drawText(statistics[1], 30, 110, textPaint);
+        canvas.drawText(statistics[2], 30, 170, textPaint);
+        canvas.drawText(statistics[3], 30, 220, textPaint);
 
         return finalBitmap;
     }
@@ -543,15 +1400,23 @@ public class MainActivity extends AppCompatActivity {
     // -------------------------------------------------------------------------
 
     @Override
-    protected void onResume() {
-        super.onResume();
-        glSurfaceView.onResume();
+    protected void onPause() {
+        super.onPause();
+        if (videoRecorder != null) stopRecording();
+        frameScheduler.release();
+        gpuColorizer.trim();
+        Log.i(TAG, "Preview frames: " + frameScheduler);
+        Log.i(TAG, "Camera parameters: " + parameterChannel);
     }
 
     @Override
-    protected void onPause() {
-        super.onPause();
-        glSurfaceView.onPause();
+    protected void onDestroy() {
+        super.onDestroy();
+        capturePipeline.shutdown();
+        gpuColorizer.release();
+        renderThread.release();
+        bitmapPool.clear();
+        intBufferPool.clear();
     }
 
     @Override
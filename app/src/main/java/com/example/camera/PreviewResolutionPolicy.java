@@ -0,0 +1,104 @@
+package com.example.camera;
+
+import android.util.Log;
+import android.util.Size;
+
+/**
+ * 根据实测渲染耗时选择预览流分辨率
+ * 渲染器定期上报单帧 GPU 完成耗时（取指数滑动平均），超出预算且持续一段时间后降一档，
+ * 低于预算一半且持续更久后升一档；每次切换后有冷却期，避免反复重新绑定相机。
+ * onFrameCost 在 GL 线程调用，切换回调也在 GL 线程。
+ */
+public class PreviewResolutionPolicy {
+
+    private static final String TAG = "PreviewResolution";
+
+    // 候选分辨率（横向，4:3 与竖屏预览比例一致），由低到高
+    private static final Size[] TIERS = {
+            new Size(640, 480), new Size(960, 720), new Size(1280, 960), new Size(1920, 1440)
+    };
+
+    private static final float EMA_ALPHA = 0.2f;
+    private static final float STEP_UP_RATIO = 0.5f;       // 低于预算的该比例才考虑升档
+    private static final long STEP_DOWN_DWELL_MS = 1_000;  // 持续超预算多久后降档
+    private static final long STEP_UP_DWELL_MS = 5_000;    // 持续有余量多久后升档（比降档更保守）
+    private static final long COOLDOWN_MS = 3_000;         // 切换后忽略测量的时长
+
+    public interface OnResolutionChangeListener {
+        /** 在 GL 线程回调 */
+        void onResolutionChange(Size size);
+    }
+
+    private final float budgetMs;
+    private volatile int tier;
+    private volatile OnResolutionChangeListener listener;
+
+    private float averageMs = -1;
+    private long overSinceMs = -1;
+    private long underSinceMs = -1;
+    private long cooldownUntilMs;
+
+    /**
+     * @param budgetMs    单帧渲染预算（毫秒）
+     * @param initialSize 初始分辨率，取不超过它的最高一档
+     */
+    public PreviewResolutionPolicy(float budgetMs, Size initialSize) {
+        this.budgetMs = budgetMs;
+        int initial = 0;
+        for (int i = 0; i < TIERS.length; i++) {
+            if (TIERS[i].getWidth() <= initialSize.getWidth()) initial = i;
+        }
+        this.tier = initial;
+    }
+
+    public void setListener(OnResolutionChangeListener listener) {
+        this.listener = listener;
+    }
+
+    /** 当前选择的预览分辨率（任意线程） */
+    public Size getSize() {
+        return TIERS[tier];
+    }
+
+    /**
+     * 上报一次单帧渲染耗时
+     * @param costNs 从开始绘制到 GPU 完成的耗时
+     * @param nowMs  当前时间（SystemClock.elapsedRealtime）
+     */
+    public void onFrameCost(long costNs, long nowMs) {
+        if (nowMs < cooldownUntilMs) return;
+
+        float costMs = costNs / 1e6f;
+        averageMs = averageMs < 0 ? costMs : averageMs + EMA_ALPHA * (costMs - averageMs);
+
+        if (averageMs > budgetMs) {
+            underSinceMs = -1;
+            if (overSinceMs < 0) overSinceMs = nowMs;
+            if (tier > 0 && nowMs - overSinceMs >= STEP_DOWN_DWELL_MS) {
+                change(tier - 1, nowMs);
+            }
+        } else if (averageMs < budgetMs * STEP_UP_RATIO) {
+            overSinceMs = -1;
+            if (underSinceMs < 0) underSinceMs = nowMs;
+            if (tier < TIERS.length - 1 && nowMs - underSinceMs >= STEP_UP_DWELL_MS) {
+                change(tier + 1, nowMs);
+            }
+        } else {
+            // 处于滞回区间内，维持当前分辨率
+            overSinceMs = -1;
+            underSinceMs = -1;
+        }
+    }
+
+    private void change(int newTier, long nowMs) {
+        Log.i(TAG, String.format("Frame cost %.2f ms (budget %.2f ms): %s -> %s",
+                averageMs, budgetMs, TIERS[tier], TIERS[newTier]));
+        tier = newTier;
+        averageMs = -1;
+        overSinceMs = -1;
+        underSinceMs = -1;
+        cooldownUntilMs = nowMs + COOLDOWN_MS;
+        OnResolutionChangeListener l = listener;
+        if (l != null) l.onResolutionChange(TIERS[newTier]);
+    }
+}
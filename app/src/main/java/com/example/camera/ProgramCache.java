@@ -0,0 +1,137 @@
+package com.example.camera;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.util.Log;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 已链接着色器程序的二进制缓存（glGetProgramBinary / glProgramBinary，需要 ES 3.0 上下文）
+ * 以着色器源码 + GL_VERSION + GL_RENDERER 的哈希作为文件名，驱动升级后自动失效；
+ * 驱动拒绝已存的二进制时删除该文件，由调用方重新编译。所有方法在 GL 线程调用。
+ */
+public class ProgramCache {
+
+    private static final String TAG = "ProgramCache";
+
+    private final File dir;
+
+    /**
+     * @param dir 缓存目录，建议使用 Context.getCodeCacheDir()（应用升级时由系统清空）
+     */
+    public ProgramCache(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * 当前上下文是否支持程序二进制
+     */
+    public static boolean isSupported() {
+        String version = GLES20.glGetString(GLES20.GL_VERSION);
+        if (version == null || !version.startsWith("OpenGL ES 3")) return false;
+        int[] formats = new int[1];
+        GLES20.glGetIntegerv(GLES30.GL_NUM_PROGRAM_BINARY_FORMATS, formats, 0);
+        return formats[0] > 0;
+    }
+
+    /**
+     * 从缓存加载程序
+     * @return 链接成功的程序，未命中或被驱动拒绝时返回 0
+     */
+    public int load(String vertexSource, String fragmentSource) {
+        File file = fileFor(vertexSource, fragmentSource);
+        if (!file.isFile()) return 0;
+
+        int format;
+        byte[] data;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            format = in.readInt();
+            data = new byte[in.readInt()];
+            in.readFully(data);
+        } catch (IOException e) {
+            Log.w(TAG, "读取程序缓存失败: " + file.getName(), e);
+            file.delete();
+            return 0;
+        }
+
+        int program = GLES30.glCreateProgram();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length).order(ByteOrder.nativeOrder());
+        buffer.put(data).position(0);
+        GLES30.glProgramBinary(program, format, buffer, data.length);
+        int[] linked = new int[1];
+        GLES30.glGetProgramiv(program, GLES30.GL_LINK_STATUS, linked, 0);
+        if (linked[0] == 0) {
+            // 驱动版本字符串未变但二进制不兼容（或文件损坏），丢弃后重新编译
+            Log.w(TAG, "驱动拒绝程序缓存: " + file.getName());
+            GLES30.glDeleteProgram(program);
+            file.delete();
+            return 0;
+        }
+        return program;
+    }
+
+    /**
+     * 保存已链接程序的二进制；写入临时文件后重命名，避免留下半个文件
+     */
+    public void store(int program, String vertexSource, String fragmentSource) {
+        int[] length = new int[1];
+        GLES30.glGetProgramiv(program, GLES30.GL_PROGRAM_BINARY_LENGTH, length, 0);
+        if (length[0] <= 0) return;
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(length[0]).order(ByteOrder.nativeOrder());
+        int[] written = new int[1];
+        int[] format = new int[1];
+        GLES30.glGetProgramBinary(program, length[0], written, 0, format, 0, buffer);
+        if (written[0] <= 0) return;
+        byte[] data = new byte[written[0]];
+        buffer.get(data);
+
+        if (!dir.isDirectory() && !dir.mkdirs()) return;
+        File file = fileFor(vertexSource, fragmentSource);
+        File tmp = new File(dir, file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+            out.writeInt(format[0]);
+            out.writeInt(data.length);
+            out.write(data);
+        } catch (IOException e) {
+            Log.w(TAG, "写入程序缓存失败: " + file.getName(), e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+        }
+    }
+
+    private File fileFor(String vertexSource, String fragmentSource) {
+        String key = vertexSource + '\0' + fragmentSource + '\0'
+                + GLES20.glGetString(GLES20.GL_VERSION) + '\0'
+                + GLES20.glGetString(GLES20.GL_RENDERER);
+        return new File(dir, sha1(key) + ".bin");
+    }
+
+    private static String sha1(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1")
+                    .digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,12 +1,21 @@
 package com.example.camera;
 
 import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.os.SystemClock;
 import android.util.Log;
 
 public class ShaderUtils {
 
     private static final String TAG = "ShaderUtils";
 
+    // 程序二进制缓存，未设置时每次都从源码编译
+    private static volatile ProgramCache programCache;
+
+    public static void setProgramCache(ProgramCache cache) {
+        programCache = cache;
+    }
+
     public static int compileShader(int type, String source) {
         int shader = GLES20.glCreateShader(type);
         if (shader == 0) {
@@ -25,7 +34,32 @@ public class ShaderUtils {
         return shader;
     }
 
+    /**
+     * 优先从程序缓存加载，未命中或被驱动拒绝时从源码编译链接并写回缓存
+     */
     public static int createProgram(String vertexSource, String fragmentSource) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        ProgramCache cache = programCache;
+        boolean cacheable = cache != null && ProgramCache.isSupported();
+        if (cacheable) {
+            int program = cache.load(vertexSource, fragmentSource);
+            if (program != 0) {
+                Log.d(TAG, String.format("Program loaded from cache in %.2f ms", elapsedMs(start)));
+                return program;
+            }
+        }
+
+        int program = compileAndLink(vertexSource, fragmentSource, cacheable);
+        if (program != 0) {
+            Log.d(TAG, String.format("Program compiled and linked in %.2f ms", elapsedMs(start)));
+            if (cacheable) {
+                cache.store(program, vertexSource, fragmentSource);
+            }
+        }
+        return program;
+    }
+
+    private static int compileAndLink(String vertexSource, String fragmentSource, boolean retrievable) {
         int vertexShader = compileShader(GLES20.GL_VERTEX_SHADER, vertexSource);
         if (vertexShader == 0) return 0;
         int fragmentShader = compileShader(GLES20.GL_FRAGMENT_SHADER, fragmentSource);
@@ -38,6 +72,9 @@ public class ShaderUtils {
         }
         GLES20.glAttachShader(program, vertexShader);
         GLES20.glAttachShader(program, fragmentShader);
+        if (retrievable) {
+            GLES30.glProgramParameteri(program, GLES30.GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GLES20.GL_TRUE);
+        }
         GLES20.glLinkProgram(program);
         int[] linked = new int[1];
         GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, linked, 0);
@@ -50,4 +87,8 @@ public class ShaderUtils {
         GLES20.glDeleteShader(fragmentShader);
         return program;
     }
+
+    private static double elapsedMs(long startNs) {
+        return (SystemClock.elapsedRealtimeNanos() - startNs) / 1e6;
+    }
 }
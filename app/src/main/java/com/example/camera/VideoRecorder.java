@@ -0,0 +1,190 @@
+package com.example.camera;
+
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaCodecList;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.util.Log;
+import android.view.Surface;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 伪彩色预览录像（MediaCodec 硬件编码 + MediaMuxer 封装 MP4）
+ * 编码器输入为 Surface，由 GLRenderThread 作为 FLAG_RECORDER 输出直接绘制，
+ * 帧时间戳取自相机 SurfaceTexture，全程没有 CPU 回读。
+ * 编码输出由独立线程取出并写入文件。
+ */
+public class VideoRecorder {
+
+    private static final String TAG = "VideoRecorder";
+
+    private static final int FRAME_RATE = 30;          // 名义帧率，实际时间戳来自相机帧
+    private static final int I_FRAME_INTERVAL_S = 1;
+    private static final long DRAIN_TIMEOUT_US = 10_000;
+
+    private final File file;
+    private final int width;
+    private final int height;
+    private final int bitRate;
+    private final String mimeType;
+
+    private MediaCodec codec;
+    private MediaMuxer muxer;
+    private Surface inputSurface;
+    private Thread drainThread;
+    private int trackIndex = -1;
+    private boolean muxerStarted;
+    private long framesWritten;
+    private long firstPtsUs = -1;
+    private long lastPtsUs;
+
+    /**
+     * @param width    编码宽度（建议为 16 的倍数）
+     * @param height   编码高度
+     * @param bitRate  码率（bit/s）
+     * @param mimeType MediaFormat.MIMETYPE_VIDEO_HEVC 或 MIMETYPE_VIDEO_AVC
+     */
+    public VideoRecorder(File file, int width, int height, int bitRate, String mimeType) {
+        this.file = file;
+        this.width = width;
+        this.height = height;
+        this.bitRate = bitRate;
+        this.mimeType = mimeType;
+    }
+
+    /**
+     * 优先 HEVC，设备没有对应尺寸的 HEVC 编码器时使用 H.264
+     */
+    public static String preferredMimeType(int width, int height) {
+        MediaCodecList codecs = new MediaCodecList(MediaCodecList.REGULAR_CODECS);
+        MediaFormat hevc = MediaFormat.createVideoFormat(MediaFormat.MIMETYPE_VIDEO_HEVC, width, height);
+        return codecs.findEncoderForFormat(hevc) != null
+                ? MediaFormat.MIMETYPE_VIDEO_HEVC : MediaFormat.MIMETYPE_VIDEO_AVC;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * 配置并启动编码器
+     * @return 编码器输入 Surface，交给渲染线程作为录像输出
+     */
+    public Surface start() throws IOException {
+        MediaFormat format = MediaFormat.createVideoFormat(mimeType, width, height);
+        format.setInteger(MediaFormat.KEY_COLOR_FORMAT, MediaCodecInfo.CodecCapabilities.COLOR_FormatSurface);
+        format.setInteger(MediaFormat.KEY_BIT_RATE, bitRate);
+        format.setInteger(MediaFormat.KEY_FRAME_RATE, FRAME_RATE);
+        format.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, I_FRAME_INTERVAL_S);
+
+        codec = MediaCodec.createEncoderByType(mimeType);
+        try {
+            codec.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            inputSurface = codec.createInputSurface();
+            muxer = new MediaMuxer(file.getAbsolutePath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        } catch (IOException | RuntimeException e) {
+            release();
+            throw e;
+        }
+        codec.start();
+
+        drainThread = new Thread(this::drainLoop, TAG);
+        drainThread.start();
+        Log.i(TAG, String.format("Recording %s %dx%d @ %d kbps -> %s",
+                mimeType, width, height, bitRate / 1000, file.getName()));
+        return inputSurface;
+    }
+
+    /**
+     * 结束录像：通知输入结束、等待剩余输出写完后关闭文件。
+     * 调用前须先从渲染线程移除录像输出，确保不再向输入 Surface 绘制。
+     * @return 录像时长（毫秒）
+     */
+    public long stop() {
+        if (codec == null) return 0;
+        try {
+            codec.signalEndOfInputStream();
+            drainThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IllegalStateException e) {
+            Log.w(TAG, "signalEndOfInputStream failed", e);
+            drainThread.interrupt();
+        }
+        long durationMs = firstPtsUs < 0 ? 0 : (lastPtsUs - firstPtsUs) / 1000;
+        Log.i(TAG, "Recorded " + framesWritten + " frames, " + durationMs + " ms");
+        release();
+        return durationMs;
+    }
+
+    /** 编码输出线程：取出编码数据写入封装器，直到收到结束标志 */
+    private void drainLoop() {
+        MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                int index = codec.dequeueOutputBuffer(info, DRAIN_TIMEOUT_US);
+                if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    trackIndex = muxer.addTrack(codec.getOutputFormat());
+                    muxer.start();
+                    muxerStarted = true;
+                } else if (index >= 0) {
+                    ByteBuffer data = codec.getOutputBuffer(index);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0) {
+                        // 编码参数已随 INFO_OUTPUT_FORMAT_CHANGED 写入轨道格式
+                        info.size = 0;
+                    }
+                    if (info.size > 0 && muxerStarted && data != null) {
+                        data.position(info.offset);
+                        data.limit(info.offset + info.size);
+                        muxer.writeSampleData(trackIndex, data, info);
+                        if (firstPtsUs < 0) firstPtsUs = info.presentationTimeUs;
+                        lastPtsUs = info.presentationTimeUs;
+                        framesWritten++;
+                    }
+                    codec.releaseOutputBuffer(index, false);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) break;
+                }
+            }
+        } catch (IllegalStateException e) {
+            Log.e(TAG, "Encoder drain failed", e);
+        }
+    }
+
+    private void release() {
+        if (codec != null) {
+            try {
+                codec.stop();
+            } catch (IllegalStateException ignored) {
+                // 未启动或已出错
+            }
+            codec.release();
+            codec = null;
+        }
+        if (muxer != null) {
+            try {
+                if (muxerStarted) muxer.stop();
+            } catch (IllegalStateException e) {
+                Log.w(TAG, "Muxer stop failed (no frames?)", e);
+            }
+            muxer.release();
+            muxer = null;
+            muxerStarted = false;
+        }
+        if (inputSurface != null) {
+            inputSurface.release();
+            inputSurface = null;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.camera;
+
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.graphics.YuvImage;
+
+import androidx.camera.core.ImageProxy;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 将 YUV_420_888 帧编码为 JPEG
+ * YUV 拍照模式下按需保存原图时使用，不在伪彩色处理路径上
+ */
+public final class YuvJpegWriter {
+
+    private YuvJpegWriter() {}
+
+    /**
+     * 编码已打包的 NV21 数据；可在帧关闭后于其他线程执行
+     */
+    public static boolean write(byte[] nv21, int width, int height, int quality, OutputStream out) {
+        YuvImage yuvImage = new YuvImage(nv21, ImageFormat.NV21, width, height, null);
+        return yuvImage.compressToJpeg(new Rect(0, 0, width, height), quality, out);
+    }
+
+    /**
+     * 按各平面的 rowStride / pixelStride 重新打包为 NV21（Y 平面 + VU 交错）
+     */
+    public static byte[] toNv21(ImageProxy image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int chromaWidth = width / 2;
+        int chromaHeight = height / 2;
+        byte[] nv21 = new byte[width * height + 2 * chromaWidth * chromaHeight];
+
+        ImageProxy.PlaneProxy[] planes = image.getPlanes();
+        ByteBuffer y = planes[0].getBuffer().duplicate();
+        int yRowStride = planes[0].getRowStride();
+        int yPixelStride = planes[0].getPixelStride();
+        int start = y.position();
+        int pos = 0;
+        for (int row = 0; row < height; row++) {
+            if (yPixelStride == 1) {
+                y.position(start + row * yRowStride);
+                y.get(nv21, pos, width);
+                pos += width;
+            } else {
+                int rowStart = start + row * yRowStride;
+                for (int col = 0; col < width; col++) {
+                    nv21[pos++] = y.get(rowStart + col * yPixelStride);
+                }
+            }
+        }
+
+        ByteBuffer u = planes[1].getBuffer();
+        ByteBuffer v = planes[2].getBuffer();
+        int uvRowStride = planes[1].getRowStride();
+        int uvPixelStride = planes[1].getPixelStride();
+        int uStart = u.position();
+        int vStart = v.position();
+        for (int row = 0; row < chromaHeight; row++) {
+            int offset = row * uvRowStride;
+            for (int col = 0; col < chromaWidth; col++, offset += uvPixelStride) {
+                nv21[pos++] = v.get(vStart + offset);
+                nv21[pos++] = u.get(uStart + offset);
+            }
+        }
+        return nv21;
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.camera.contract;
 
 import android.graphics.Bitmap;
+import com.example.camera.imaging.AutoExposureController;
+import com.example.camera.imaging.ColorMap;
+import com.example.camera.imaging.LumaHistogram;
 import com.example.camera.model.CameraSettings;
 import com.example.camera.model.AppState;
 
@@ -26,6 +29,8 @@ public interface CameraContract {
         void updateExposureDisplay(String exposureText);
         void updateBrightnessMode(String mode);
         void updateExposureValue(String exposureValue);
+        void updateLiveLuma(String lumaText);
+        void updateAutoExposureState(String stateText);
         
         // SeekBar控制
         void resetSeekBars();
@@ -76,6 +81,12 @@ public interface CameraContract {
         
         // 图像处理
         void onImageCaptured(byte[] imageData);
+        
+        // 预览测光（GPU 回读的实时亮度均值与直方图）
+        void onPreviewLumaMetered(LumaHistogram histogram);
+        
+        // 软件自动曝光的收敛状态变化（调节中 / 收敛 / 稳定 / 超出范围）
+        void onAutoExposureStateChanged(AutoExposureController.Result result);
     }
     
     /**
@@ -95,6 +106,10 @@ public interface CameraContract {
         String formatExposureTime(long exposureTimeNs);
         
         // 图像处理
+        Bitmap decodeImage(byte[] imageData);
+        void releaseBitmap(Bitmap bitmap);
+        ColorMap getColorMap();
+        void setColorMap(ColorMap colorMap);
         Bitmap createPseudoColorImage(Bitmap originalBitmap, String exifBrightness);
         
         // 文件操作
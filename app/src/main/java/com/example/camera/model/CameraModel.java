@@ -5,14 +5,20 @@ import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.LinearGradient;
-import android.graphics.Matrix;
 import android.graphics.Paint;
-import android.graphics.Shader;
 import android.os.Environment;
 import android.util.Log;
 
+import com.example.camera.BitmapPool;
 import com.example.camera.contract.CameraContract;
+import com.example.camera.imaging.ColorMap;
+import com.example.camera.imaging.IntBufferPool;
+import com.example.camera.imaging.LegendAnnotation;
+import com.example.camera.imaging.LegendRenderer;
+import com.example.camera.imaging.LumaHistogram;
+import com.example.camera.imaging.Luminance;
+import com.example.camera.imaging.PseudoColorRenderer;
+import com.example.camera.imaging.RowBandExecutor;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -27,12 +33,21 @@ public class CameraModel implements CameraContract.Model {
     
     private CameraSettings cameraSettings;
     private AppState appState;
+    private ColorMap colorMap;
+    private RowBandExecutor rowBandExecutor;   // 为 null 时顺序处理
+    private final IntBufferPool intBufferPool;
+    private final BitmapPool bitmapPool;
     private Context context;
     
     public CameraModel(Context context) {
         this.context = context;
         this.cameraSettings = new CameraSettings();
         this.appState = new AppState();
+        this.colorMap = ColorMap.isolux();
+        this.rowBandExecutor = RowBandExecutor.getDefault();
+        long poolBytes = Runtime.getRuntime().maxMemory() / 4;
+        this.intBufferPool = new IntBufferPool(poolBytes);
+        this.bitmapPool = new BitmapPool(poolBytes);
     }
     
     @Override
@@ -55,6 +70,23 @@ public class CameraModel implements CameraContract.Model {
         this.appState = state;
     }
     
+    @Override
+    public ColorMap getColorMap() {
+        return colorMap;
+    }
+    
+    @Override
+    public void setColorMap(ColorMap colorMap) {
+        this.colorMap = colorMap;
+    }
+    
+    /**
+     * 设置伪彩色并行执行器，传入 null 则回到单线程处理
+     */
+    public void setRowBandExecutor(RowBandExecutor rowBandExecutor) {
+        this.rowBandExecutor = rowBandExecutor;
+    }
+    
     @Override
     public double calculateExposureValue(int iso, long exposureTime, float aperture) {
         double exposureSeconds = exposureTime / 1_000_000_000.0;
@@ -71,6 +103,16 @@ public class CameraModel implements CameraContract.Model {
         }
     }
     
+    @Override
+    public Bitmap decodeImage(byte[] imageData) {
+        return bitmapPool.decodeByteArray(imageData);
+    }
+    
+    @Override
+    public void releaseBitmap(Bitmap bitmap) {
+        bitmapPool.release(bitmap);
+    }
+    
     @Override
     public Bitmap createPseudoColorImage(Bitmap originalBitmap, String exifBrightness) {
         if (originalBitmap == null) return null;
@@ -78,110 +120,60 @@ public class CameraModel implements CameraContract.Model {
         int width = originalBitmap.getWidth();
         int height = originalBitmap.getHeight();
 
-        // 生成伪彩色图像
-        int[] pixels = new int[width * height];
-        originalBitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-
-        for (int i = 0; i < pixels.length; i++) {
-            int gray = Color.red(pixels[i]);
-            int color;
-            if (gray < 64) {
-                color = Color.rgb(0, 0, gray * 4);
-            } else if (gray < 128) {
-                int blue = 255 - (gray - 64) * 4;
-                int green = (gray - 64) * 4;
-                color = Color.rgb(0, green, blue);
-            } else if (gray < 192) {
-                int green = 255 - (gray - 128) * 4;
-                int red = (gray - 128) * 4;
-                color = Color.rgb(red, green, 0);
-            } else {
-                int green = (gray - 192) * 4;
-                color = Color.rgb(255, green, 0);
-            }
-            pixels[i] = color;
+        // 伪彩色 + 按传感器方向旋转 + 右侧预留图例，一次写入最终像素缓冲区
+        int rotation = cameraSettings.getSensorOrientation();
+        int rotatedWidth = PseudoColorRenderer.rotatedWidth(width, height, rotation);
+        int rotatedHeight = PseudoColorRenderer.rotatedHeight(width, height, rotation);
+        int outWidth = rotatedWidth + LegendRenderer.LEGEND_WIDTH;
+        LumaHistogram histogram = new LumaHistogram();   // 上色同时统计全帧亮度
+        Bitmap finalBitmap;
+        int[] pixels = intBufferPool.acquire(width * height);
+        int[] out = null;
+        try {
+            originalBitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+            out = intBufferPool.acquire(outWidth * rotatedHeight);
+            PseudoColorRenderer.render(pixels, width, height, rotation, colorMap,
+                    out, outWidth, histogram, rowBandExecutor);
+            LegendRenderer.fillSwatches(out, outWidth, rotatedWidth, LegendRenderer.LEGEND_WIDTH,
+                    rotatedHeight, colorMap);
+            finalBitmap = bitmapPool.acquire(outWidth, rotatedHeight);
+            finalBitmap.setPixels(out, 0, outWidth, 0, 0, outWidth, rotatedHeight);
+        } finally {
+            // 渲染失败（含 OutOfMemoryError）时也归还缓冲区
+            intBufferPool.release(pixels);
+            if (out != null) intBufferPool.release(out);
         }
-
-        Bitmap pseudoBitmap = Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
-
-        // 旋转图像
-        Matrix rotateMatrix = new Matrix();
-        rotateMatrix.postRotate(90);
-        Bitmap rotatedPseudoBitmap = Bitmap.createBitmap(pseudoBitmap, 0, 0, width, height, rotateMatrix, true);
-        pseudoBitmap.recycle();
         
-        // 添加图例和信息
-        return addLegendAndInfo(rotatedPseudoBitmap, originalBitmap, exifBrightness);
+        // 添加图例文字和信息
+        addLegendAndInfo(finalBitmap, rotatedWidth, histogram, exifBrightness);
+        return finalBitmap;
     }
     
     /**
-     * 为伪彩色图像添加图例和信息
+     * 在合成图像上绘制图例文字和统计信息
      */
-    private Bitmap addLegendAndInfo(Bitmap rotatedPseudoBitmap, Bitmap originalBitmap, String exifBrightness) {
-        int rotatedWidth = rotatedPseudoBitmap.getWidth();
-        int rotatedHeight = rotatedPseudoBitmap.getHeight();
-        
-        // 计算平均亮度
-        int[][] points = {
-                {originalBitmap.getWidth() / 4, originalBitmap.getHeight() / 4},
-                {originalBitmap.getWidth() * 3 / 4, originalBitmap.getHeight() / 4},
-                {originalBitmap.getWidth() / 4, originalBitmap.getHeight() * 3 / 4},
-                {originalBitmap.getWidth() * 3 / 4, originalBitmap.getHeight() * 3 / 4},
-                {originalBitmap.getWidth() / 2, originalBitmap.getHeight() / 2}
-        };
-        int sumR = 0, sumG = 0, sumB = 0;
-        for (int[] pt : points) {
-            int pixel = originalBitmap.getPixel(pt[0], pt[1]);
-            sumR += Color.red(pixel);
-            sumG += Color.green(pixel);
-            sumB += Color.blue(pixel);
-        }
-        int avgR = sumR / points.length;
-        int avgG = sumG / points.length;
-        int avgB = sumB / points.length;
-        double yValue = 0.299 * avgR + 0.587 * avgG + 0.114 * avgB;
-
-        // 亮度L中心值计算
-        float bv = Float.NaN;
-        if (exifBrightness != null && !exifBrightness.equals("N/A") && !exifBrightness.equals("读取失败")) {
-            try {
-                if (exifBrightness.contains("/")) {
-                    String[] parts = exifBrightness.split("/");
-                    bv = Float.parseFloat(parts[0]) / Float.parseFloat(parts[1]);
-                } else {
-                    bv = Float.parseFloat(exifBrightness);
-                }
-            } catch (Exception e) {
-                bv = Float.NaN;
-            }
-        }
+    private void addLegendAndInfo(Bitmap finalBitmap, int rotatedWidth, LumaHistogram histogram, String exifBrightness) {
+        int rotatedHeight = finalBitmap.getHeight();
         
-        double Lcenter;
-        if (!Float.isNaN(bv)) {
-            Lcenter = 2.9 * Math.exp(0.729 * bv);
-        } else {
-            Lcenter = yValue / 255.0 * 400 + 50;
-        }
+        // 有本机标定表时按当前 ISO / 曝光时间查表
+        float[] luminanceRow = Luminance.calibratedRow(cameraSettings.getIso(), cameraSettings.getExposureTime());
+        LegendAnnotation annotation = LegendAnnotation.create(histogram, exifBrightness, colorMap.getBands(),
+                luminanceRow, Luminance.calibrationSource());
 
-        // 创建带图例的最终图像
-        final int legendWidth = 190;
-        Bitmap finalBitmap = Bitmap.createBitmap(rotatedWidth + legendWidth, rotatedHeight, Bitmap.Config.ARGB_8888);
         Canvas canvas = new Canvas(finalBitmap);
-        canvas.drawBitmap(rotatedPseudoBitmap, 0, 0, null);
 
         // 绘制图例
-        drawLegend(canvas, rotatedWidth, rotatedHeight, legendWidth, Lcenter);
+        drawLegend(canvas, rotatedWidth, rotatedHeight, LegendRenderer.LEGEND_WIDTH, annotation);
         
         // 绘制统计信息
-        drawStatistics(canvas, avgR, avgG, avgB, yValue, exifBrightness, bv);
-
-        return finalBitmap;
+        drawStatistics(canvas, annotation);
     }
     
     /**
-     * 绘制亮度图例
+     * 绘制亮度图例文字（色块已由 LegendRenderer 写入像素）
      */
-    private void drawLegend(Canvas canvas, int rotatedWidth, int rotatedHeight, int legendWidth, double Lcenter) {
+    private void drawLegend(Canvas canvas, int rotatedWidth, int rotatedHeight, int legendWidth,
+                            LegendAnnotation annotation) {
         // 图例标题
         Paint paint = new Paint();
         paint.setAntiAlias(true);
@@ -189,43 +181,14 @@ public class CameraModel implements CameraContract.Model {
         paint.setTextSize(32);
         canvas.drawText("亮度L (cd/m²)", rotatedWidth + 18, 48, paint);
 
-        final int legendLevels = 4;
-        double delta = Lcenter * 0.25;
-        double[] lThresholds = new double[legendLevels + 1];
-        for (int i = 0; i <= legendLevels; i++) {
-            lThresholds[i] = Lcenter - delta + (2 * delta) * i / legendLevels;
-        }
-
-        int[][] colorPairs = {
-                {Color.rgb(0, 0, 0), Color.rgb(0, 0, 255)},
-                {Color.rgb(0, 0, 255), Color.rgb(0, 255, 0)},
-                {Color.rgb(0, 255, 0), Color.rgb(255, 255, 0)},
-                {Color.rgb(255, 255, 0), Color.rgb(255, 0, 0)}
-        };
-
-        int itemHeight = rotatedHeight / legendLevels;
-        itemHeight = Math.max(itemHeight, 50);
+        final int legendLevels = annotation.getLevels();
+        int itemHeight = LegendRenderer.itemHeight(rotatedHeight, legendLevels);
         paint.setTextSize(40);
 
         for (int i = 0; i < legendLevels; i++) {
             int y = i * itemHeight;
-            int startColor = colorPairs[i][0];
-            int endColor = colorPairs[i][1];
-            LinearGradient gradient = new LinearGradient(
-                    rotatedWidth + 15, y + 10,
-                    rotatedWidth + legendWidth - 15, y + itemHeight - 10,
-                    new int[]{startColor, endColor}, null, Shader.TileMode.CLAMP
-            );
-            paint.setShader(gradient);
-            canvas.drawRect(rotatedWidth + 10, y + 10, rotatedWidth + legendWidth - 10, y + itemHeight - 10, paint);
-            paint.setShader(null);
-
-            String lLabel = String.format("L\n%.2f\n↓\n%.2f", lThresholds[i], lThresholds[i + 1]);
-            paint.setColor(Color.BLACK);
-            paint.setTextSize(40);
-
             float lineHeight = paint.getTextSize() + 8;
-            String[] lines = lLabel.split("\n");
+            String[] lines = annotation.labelLines(i);
             float totalHeight = lines.length * lineHeight;
             float textY = y + (itemHeight - totalHeight) / 2 + lineHeight;
             float textX = rotatedWidth + legendWidth / 2f - paint.measureText("00.00") / 2;
@@ -239,25 +202,18 @@ public class CameraModel implements CameraContract.Model {
     /**
      * 绘制统计信息
      */
-    private void drawStatistics(Canvas canvas, int avgR, int avgG, int avgB, double yValue, String exifBrightness, float bv) {
+    private void drawStatistics(Canvas canvas, LegendAnnotation annotation) {
         Paint textPaint = new Paint();
         textPaint.setColor(Color.WHITE);
         textPaint.setTextSize(36);
         textPaint.setAntiAlias(true);
         textPaint.setShadowLayer(2.0f, 2, 2, Color.BLACK);
 
-        canvas.drawText(String.format("Avg RGB: R=%d, G=%d, B=%d", avgR, avgG, avgB), 30, 60, textPaint);
-        canvas.drawText(String.format("Gray = %.2f", yValue), 30, 110, textPaint);
-        canvas.drawText(String.format("EXIF BV = %s", exifBrightness), 30, 170, textPaint);
-
-        String lResult;
-        if (!Float.isNaN(bv)) {
-            double L = 2.9 * Math.exp(0.729 * bv);
-            lResult = String.format("L = 2.9 × exp(0.729×BV) = %.2f", L);
-        } else {
-            lResult = "L = N/A";
-        }
-        canvas.drawText(lResult, 30, 220, textPaint);
+        String[] statistics = annotation.getStatisticsLines();
+        canvas.drawText(statistics[0], 30, 60, textPaint);
+        canvas.drawText(statistics[1], 30, 110, textPaint);
+        canvas.drawText(statistics[2], 30, 170, textPaint);
+        canvas.drawText(statistics[3], 30, 220, textPaint);
     }
     
     @Override
@@ -0,0 +1,142 @@
+package com.example.camera.model;
+
+import android.graphics.Bitmap;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一次拍照在处理流水线各阶段之间传递的数据
+ * 每个阶段填充自己的产物，并释放不再需要的上一阶段产物
+ */
+public class CaptureJob {
+    private final long requestedAt;         // 按下拍照的时刻（elapsedRealtime）
+    private final int previewTargetSize;    // 渐进式缩略结果的长边
+
+    private byte[] originalJpeg;            // 原图 JPEG（JPEG 模式为拍照数据，YUV 模式由编码阶段生成）
+    private byte[] nv21;                    // YUV 模式下待编码的原图
+    private int width;
+    private int height;
+    private Bitmap originalBitmap;          // 解码结果，渲染后归还复用池
+    private long sensorTimestampNs;         // 传感器时间戳，用于取回该帧的 CaptureResult
+    private String exifBrightness = "N/A";  // BV：由拍摄参数计算，或取自 EXIF
+    private int iso;                        // 实际 ISO 与曝光时间，用于亮度标定查表；0 表示未知
+    private long exposureNs;
+    private Bitmap pseudoBitmap;            // 伪彩色结果（显示与编码共用）
+    private byte[] pseudoJpeg;
+    private long firstResultMs = -1;
+
+    // 伪彩色位图的持有者计数：显示和编码各持有一份，全部释放后才可归还复用池
+    private final AtomicInteger pseudoRefs = new AtomicInteger();
+
+    public CaptureJob(long requestedAt, int previewTargetSize) {
+        this.requestedAt = requestedAt;
+        this.previewTargetSize = previewTargetSize;
+    }
+
+    public long getRequestedAt() {
+        return requestedAt;
+    }
+
+    public int getPreviewTargetSize() {
+        return previewTargetSize;
+    }
+
+    public byte[] getOriginalJpeg() {
+        return originalJpeg;
+    }
+
+    public void setOriginalJpeg(byte[] originalJpeg) {
+        this.originalJpeg = originalJpeg;
+    }
+
+    public byte[] getNv21() {
+        return nv21;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void setNv21(byte[] nv21, int width, int height) {
+        this.nv21 = nv21;
+        this.width = width;
+        this.height = height;
+    }
+
+    public Bitmap getOriginalBitmap() {
+        return originalBitmap;
+    }
+
+    public void setOriginalBitmap(Bitmap originalBitmap) {
+        this.originalBitmap = originalBitmap;
+    }
+
+    public long getSensorTimestampNs() {
+        return sensorTimestampNs;
+    }
+
+    public void setSensorTimestampNs(long sensorTimestampNs) {
+        this.sensorTimestampNs = sensorTimestampNs;
+    }
+
+    public int getIso() {
+        return iso;
+    }
+
+    public long getExposureNs() {
+        return exposureNs;
+    }
+
+    public void setCaptureExposure(int iso, long exposureNs) {
+        this.iso = iso;
+        this.exposureNs = exposureNs;
+    }
+
+    public String getExifBrightness() {
+        return exifBrightness;
+    }
+
+    public void setExifBrightness(String exifBrightness) {
+        this.exifBrightness = exifBrightness;
+    }
+
+    public Bitmap getPseudoBitmap() {
+        return pseudoBitmap;
+    }
+
+    /**
+     * 设置伪彩色结果及其持有者数量
+     */
+    public void setPseudoBitmap(Bitmap pseudoBitmap, int holders) {
+        this.pseudoBitmap = pseudoBitmap;
+        pseudoRefs.set(holders);
+    }
+
+    /**
+     * 释放一份伪彩色位图的持有
+     * @return true 表示已无持有者，调用方应将位图归还复用池
+     */
+    public boolean releasePseudoBitmap() {
+        return pseudoBitmap != null && pseudoRefs.decrementAndGet() == 0;
+    }
+
+    public byte[] getPseudoJpeg() {
+        return pseudoJpeg;
+    }
+
+    public void setPseudoJpeg(byte[] pseudoJpeg) {
+        this.pseudoJpeg = pseudoJpeg;
+    }
+
+    public long getFirstResultMs() {
+        return firstResultMs;
+    }
+
+    public void setFirstResultMs(long firstResultMs) {
+        this.firstResultMs = firstResultMs;
+    }
+}
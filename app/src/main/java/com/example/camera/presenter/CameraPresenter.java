@@ -2,21 +2,31 @@ package com.example.camera.presenter;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.hardware.camera2.CameraAccessException;
 import android.hardware.camera2.CameraCharacteristics;
 import android.hardware.camera2.CameraDevice;
 import android.hardware.camera2.CameraManager;
 import android.hardware.camera2.CaptureRequest;
 import android.hardware.camera2.params.StreamConfigurationMap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import android.util.Range;
 
 import com.example.camera.R;
 import com.example.camera.contract.CameraContract;
+import com.example.camera.imaging.AutoExposureController;
+import com.example.camera.imaging.AutoExposureLoop;
+import com.example.camera.imaging.LumaHistogram;
+import com.example.camera.imaging.StagedPipeline;
 import com.example.camera.model.AppState;
 import com.example.camera.model.CameraModel;
 import com.example.camera.model.CameraSettings;
+import com.example.camera.model.CaptureJob;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * 业务逻辑层Presenter实现
@@ -34,11 +44,44 @@ public class CameraPresenter implements CameraContract.Presenter {
     private String cameraId = "0";
     private CameraDevice cameraDevice;
     
+    // View 与 Model 只在主线程访问，后台线程的结果经此投递
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    
+    // 当前显示的拍照结果所属任务，被新结果替换后释放显示方的持有（仅在主线程访问）
+    private CaptureJob displayedJob;
+    
+    // 拍照处理流水线：解码 → 渲染 → 持久化，上一张写盘时即可处理下一张
+    private final StagedPipeline<CaptureJob> capturePipeline;
+    
+    // 软件自动曝光：亮度模式为自动时由预览测光驱动，在独立线程调节
+    private final ExecutorService aeExecutor = Executors.newSingleThreadExecutor();
+    private volatile AutoExposureLoop aeLoop;   // 仅在 aeExecutor 调用
+    
     public CameraPresenter(CameraContract.View view, Context context) {
         this.view = view;
         this.context = context;
         this.model = new CameraModel(context);
         this.cameraManager = (CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
+        this.capturePipeline = new StagedPipeline.Builder<CaptureJob>()
+                .addStage("decode", 1, 2, StagedPipeline.OverflowPolicy.REJECT, this::decodeCapture)
+                .addStage("render", 1, 1, StagedPipeline.OverflowPolicy.BLOCK, this::renderCapture)
+                .addStage("persist", 1, 4, StagedPipeline.OverflowPolicy.BLOCK, this::persistCapture)
+                .setListener(new StagedPipeline.Listener<CaptureJob>() {
+                    @Override
+                    public void onDropped(String stage, CaptureJob job) {
+                        Log.w(TAG, "Capture dropped at stage " + stage);
+                        releaseCaptureJob(job, true);
+                    }
+                    
+                    @Override
+                    public void onFailed(String stage, CaptureJob job, Throwable e) {
+                        Log.e(TAG, "Capture failed at stage " + stage, e);
+                        // 保存阶段在 finally 中自行释放伪彩色结果
+                        releaseCaptureJob(job, !"persist".equals(stage));
+                        mainHandler.post(() -> view.showError("图像处理失败"));
+                    }
+                })
+                .build();
     }
     
     @Override
@@ -66,6 +109,8 @@ public class CameraPresenter implements CameraContract.Presenter {
     @Override
     public void onDestroy() {
         Log.d(TAG, "Presenter destroyed");
+        capturePipeline.shutdown();
+        aeExecutor.shutdownNow();
         closeCamera();
     }
     
@@ -110,6 +155,13 @@ public class CameraPresenter implements CameraContract.Presenter {
             
             model.updateCameraSettings(settings);
             
+            if (isoRange != null && exposureRange != null) {
+                AutoExposureLoop loop = new AutoExposureLoop(isoRange.getLower(), isoRange.getUpper(),
+                        exposureRange.getLower(), exposureRange.getUpper(), aeListener);
+                loop.reset(settings.getIso(), settings.getExposureTime());
+                aeLoop = loop;
+            }
+            
             Log.d(TAG, "Camera characteristics loaded: " + settings.toString());
             
         } catch (CameraAccessException e) {
@@ -256,6 +308,7 @@ public class CameraPresenter implements CameraContract.Presenter {
             AppState appState = model.getAppState();
             appState.setBrightnessMode(progress == 0 ? AppState.BrightnessMode.AUTO : AppState.BrightnessMode.MANUAL);
             model.updateAppState(appState);
+            if (progress == 0) resetAutoExposure(iso, exposure);
             view.updateBrightnessMode(appState.getBrightnessMode().getDisplayName());
             
             // 更新曝光量显示
@@ -314,35 +367,151 @@ public class CameraPresenter implements CameraContract.Presenter {
     
     @Override
     public void onImageCaptured(byte[] imageData) {
-        Log.d(TAG, "Image captured, processing...");
+        Log.d(TAG, "Image captured, queued for processing");
+        CaptureJob job = new CaptureJob(SystemClock.elapsedRealtime(), 0);
+        job.setOriginalJpeg(imageData);
+        if (!capturePipeline.submit(job)) {
+            view.showToast("处理队列已满，已丢弃本次拍照");
+        }
+    }
+    
+    @Override
+    public void onPreviewLumaMetered(LumaHistogram histogram) {
+        if (histogram.getTotal() == 0) return;
+        view.updateLiveLuma(String.format("Y: %.1f  P5 %d / P95 %d",
+                histogram.mean(), histogram.percentile(5), histogram.percentile(95)));
+        AutoExposureLoop loop = aeLoop;
+        if (loop != null && model.getAppState().getBrightnessMode() == AppState.BrightnessMode.AUTO) {
+            aeExecutor.execute(() -> loop.onMetered(histogram));
+        }
+    }
+    
+    @Override
+    public void onAutoExposureStateChanged(AutoExposureController.Result result) {
+        Log.d(TAG, "Auto exposure: " + result);
+        view.updateAutoExposureState("自动曝光" + AutoExposureLoop.describe(result.state));
+        if (result.state == AutoExposureController.State.SETTLED) {
+            updateExposureValueDisplay();
+        }
+    }
+    
+    /**
+     * 从当前参数重新开始自动曝光
+     */
+    private void resetAutoExposure(int iso, long exposure) {
+        AutoExposureLoop loop = aeLoop;
+        if (loop == null) return;
+        aeExecutor.execute(() -> loop.reset(iso, exposure));
+    }
+    
+    /**
+     * 自动曝光线程的回调，设置与界面的更新投递到主线程
+     */
+    private final AutoExposureLoop.Listener aeListener = new AutoExposureLoop.Listener() {
+        @Override
+        public void onExposureChanged(AutoExposureController.Result result) {
+            mainHandler.post(() -> applyAutoExposure(result));
+        }
+        
+        @Override
+        public void onStateChanged(AutoExposureController.Result result) {
+            mainHandler.post(() -> {
+                if (model.getAppState().getBrightnessMode() == AppState.BrightnessMode.AUTO) {
+                    onAutoExposureStateChanged(result);
+                }
+            });
+        }
+    };
+    
+    /**
+     * 主线程：写入相机设置并下发；期间切回手动时丢弃本次结果
+     */
+    private void applyAutoExposure(AutoExposureController.Result result) {
+        if (model.getAppState().getBrightnessMode() != AppState.BrightnessMode.AUTO) return;
+        CameraSettings settings = model.getCameraSettings();
+        settings.setIso(result.iso);
+        settings.setExposureTime(result.exposureNs);
+        model.updateCameraSettings(settings);
+        
+        view.applyCameraIsoParameter(result.iso);
+        view.applyCameraExposureParameter(result.exposureNs);
+        view.updateIsoDisplay(result.iso);
+        view.updateExposureDisplay(settings.getFormattedExposureTime());
+    }
+    
+    /**
+     * 解码原图（复用池中的位图）
+     */
+    private boolean decodeCapture(CaptureJob job) {
+        job.setOriginalBitmap(model.decodeImage(job.getOriginalJpeg()));
+        return job.getOriginalBitmap() != null;
+    }
+    
+    /**
+     * 生成伪彩色图像，交给主线程显示
+     */
+    private boolean renderCapture(CaptureJob job) {
+        // 读取EXIF数据（这里简化处理）
+        Bitmap pseudoColorBitmap = model.createPseudoColorImage(job.getOriginalBitmap(), job.getExifBrightness());
+        model.releaseBitmap(job.getOriginalBitmap());
+        job.setOriginalBitmap(null);
+        if (pseudoColorBitmap == null) return false;
         
-        // 保存原始图像
+        job.setPseudoBitmap(pseudoColorBitmap, 2);   // 显示与保存各持有一份
+        mainHandler.post(() -> {
+            view.displayCapturedImage(pseudoColorBitmap);
+            CaptureJob previous = displayedJob;
+            displayedJob = job;
+            if (previous != null) {
+                releasePseudoBitmap(previous);
+            }
+        });
+        return true;
+    }
+    
+    /**
+     * 保存原始图像与伪彩色图像
+     */
+    private boolean persistCapture(CaptureJob job) {
         String originalFileName = System.currentTimeMillis() + "_original.jpg";
-        boolean saved = model.saveImage(imageData, originalFileName);
+        boolean saved = model.saveImage(job.getOriginalJpeg(), originalFileName);
         
-        if (saved) {
-            // 生成伪彩色图像
-            Bitmap originalBitmap = BitmapFactory.decodeByteArray(imageData, 0, imageData.length);
-            if (originalBitmap != null) {
-                // 读取EXIF数据（这里简化处理）
-                String exifBrightness = "N/A";
-                
-                Bitmap pseudoColorBitmap = model.createPseudoColorImage(originalBitmap, exifBrightness);
-                if (pseudoColorBitmap != null) {
-                    view.displayCapturedImage(pseudoColorBitmap);
-                    
-                    // 保存伪彩色图像
-                    String pseudoFileName = System.currentTimeMillis() + "_pseudo.jpg";
-                    model.saveImage(pseudoColorBitmap, pseudoFileName);
-                    
-                    view.showToast("图像处理完成并已保存");
-                }
+        String pseudoFileName = System.currentTimeMillis() + "_pseudo.jpg";
+        try {
+            saved &= model.saveImage(job.getPseudoBitmap(), pseudoFileName);
+        } finally {
+            releasePseudoBitmap(job);
+        }
+        
+        boolean success = saved;
+        mainHandler.post(() -> {
+            if (success) {
+                view.showToast("图像处理完成并已保存");
+                // 更新拍照计数
+                takePicture();
+            } else {
+                view.showError("图像保存失败");
             }
-            
-            // 更新拍照计数
-            takePicture();
-        } else {
-            view.showError("图像保存失败");
+        });
+        return false;
+    }
+    
+    /**
+     * 任务被丢弃或失败时归还其持有的位图
+     */
+    private void releaseCaptureJob(CaptureJob job, boolean releasePseudo) {
+        if (job.getOriginalBitmap() != null) {
+            model.releaseBitmap(job.getOriginalBitmap());
+            job.setOriginalBitmap(null);
+        }
+        if (releasePseudo) {
+            releasePseudoBitmap(job);
+        }
+    }
+    
+    private void releasePseudoBitmap(CaptureJob job) {
+        if (job.releasePseudoBitmap()) {
+            model.releaseBitmap(job.getPseudoBitmap());
         }
     }
     
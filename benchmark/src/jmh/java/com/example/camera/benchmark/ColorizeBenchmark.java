@@ -0,0 +1,87 @@
+package com.example.camera.benchmark;
+
+import com.example.camera.imaging.ColorMap;
+import com.example.camera.imaging.LumaHistogram;
+import com.example.camera.imaging.PseudoColorRenderer;
+import com.example.camera.imaging.RowBandExecutor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 伪彩色内核：上色、上色 + 旋转、上色 + 直方图、Y 平面输入
+ * 帧尺寸覆盖预览（1280×720）、12MP 与 48MP
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ColorizeBenchmark {
+
+    @Param({"1280x720", "4000x3000", "8000x6000"})
+    public String size;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private int width;
+    private int height;
+    private int[] src;
+    private ByteBuffer yPlane;
+    private int[] dst;
+    private ColorMap colorMap;
+    private RowBandExecutor executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] wh = Frames.parseSize(size);
+        width = wh[0];
+        height = wh[1];
+        src = Frames.argb(width, height);
+        yPlane = Frames.luma(width, height);
+        dst = new int[width * height];
+        colorMap = ColorMap.isolux();
+        // 默认执行器为进程内共享，与应用中的用法一致
+        executor = parallel ? RowBandExecutor.getDefault() : null;
+    }
+
+    @Benchmark
+    public int[] colorize(PixelCounters counters) {
+        PseudoColorRenderer.render(src, width, height, 0, colorMap, dst, width, null, executor);
+        counters.add(width, height);
+        return dst;
+    }
+
+    @Benchmark
+    public int[] colorizeRotate90(PixelCounters counters) {
+        PseudoColorRenderer.render(src, width, height, 90, colorMap, dst, height, null, executor);
+        counters.add(width, height);
+        return dst;
+    }
+
+    @Benchmark
+    public LumaHistogram colorizeHistogram(PixelCounters counters) {
+        LumaHistogram histogram = new LumaHistogram();
+        PseudoColorRenderer.render(src, width, height, 90, colorMap, dst, height, histogram, executor);
+        counters.add(width, height);
+        return histogram;
+    }
+
+    @Benchmark
+    public LumaHistogram colorizeLumaPlane(PixelCounters counters) {
+        LumaHistogram histogram = new LumaHistogram();
+        PseudoColorRenderer.renderLuma(yPlane, width, 1, width, height, 90, colorMap,
+                dst, height, histogram, executor);
+        counters.add(width, height);
+        return histogram;
+    }
+}
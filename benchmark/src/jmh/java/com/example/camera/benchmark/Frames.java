@@ -0,0 +1,52 @@
+package com.example.camera.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * 合成测试帧：水平渐变叠加固定种子噪声，亮度覆盖全部 256 级
+ */
+final class Frames {
+
+    private static final long SEED = 0x5EEDL;
+
+    private Frames() {}
+
+    /**
+     * 解析 "宽x高" 形式的帧尺寸参数
+     */
+    static int[] parseSize(String size) {
+        int x = size.indexOf('x');
+        return new int[]{Integer.parseInt(size.substring(0, x)), Integer.parseInt(size.substring(x + 1))};
+    }
+
+    static int[] argb(int width, int height) {
+        int[] pixels = new int[width * height];
+        Random random = new Random(SEED);
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                int v = Math.min(255, x * 240 / width + random.nextInt(16));
+                int r = Math.min(255, v + 8);
+                int b = Math.max(0, v - 8);
+                pixels[row + x] = 0xFF000000 | (r << 16) | (v << 8) | b;
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * 与 argb 内容一致的 Y 平面（紧密排列，rowStride = width）
+     */
+    static ByteBuffer luma(int width, int height) {
+        ByteBuffer plane = ByteBuffer.allocateDirect(width * height);
+        Random random = new Random(SEED);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                plane.put((byte) Math.min(255, x * 240 / width + random.nextInt(16)));
+            }
+        }
+        plane.flip();
+        return plane;
+    }
+}
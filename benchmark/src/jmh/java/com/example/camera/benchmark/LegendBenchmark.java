@@ -0,0 +1,53 @@
+package com.example.camera.benchmark;
+
+import com.example.camera.imaging.ColorMap;
+import com.example.camera.imaging.LegendRenderer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图例色块合成：在旋转后的合成图像右侧写入渐变色块
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LegendBenchmark {
+
+    @Param({"1280x720", "4000x3000", "8000x6000"})
+    public String size;
+
+    private int rotatedWidth;
+    private int rotatedHeight;
+    private int outWidth;
+    private int[] out;
+    private ColorMap colorMap;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] wh = Frames.parseSize(size);
+        // 与拍照结果一致：按 90° 旋转后在右侧拼接图例
+        rotatedWidth = wh[1];
+        rotatedHeight = wh[0];
+        outWidth = rotatedWidth + LegendRenderer.LEGEND_WIDTH;
+        out = new int[outWidth * rotatedHeight];
+        colorMap = ColorMap.isolux();
+    }
+
+    @Benchmark
+    public int[] fillSwatches(PixelCounters counters) {
+        LegendRenderer.fillSwatches(out, outWidth, rotatedWidth, LegendRenderer.LEGEND_WIDTH,
+                rotatedHeight, colorMap);
+        counters.add(LegendRenderer.LEGEND_WIDTH, rotatedHeight);
+        return out;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.camera.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 以 MP/s 报告吞吐量：每次操作累加处理的百万像素数，JMH 按迭代时间换算为速率
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class PixelCounters {
+
+    public double megapixels;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        megapixels = 0;
+    }
+
+    void add(int width, int height) {
+        megapixels += width * (double) height / 1_000_000;
+    }
+}
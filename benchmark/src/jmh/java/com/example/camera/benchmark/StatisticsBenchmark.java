@@ -0,0 +1,63 @@
+package com.example.camera.benchmark;
+
+import com.example.camera.imaging.ColorMap;
+import com.example.camera.imaging.LegendRenderer;
+import com.example.camera.imaging.LumaHistogram;
+import com.example.camera.imaging.Luminance;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 直方图统计量与 BV → L 换算（addLegendAndInfo 中除绘制以外的部分）
+ * 与帧尺寸无关：直方图已在上色时累加，这里只处理 256 个分箱
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StatisticsBenchmark {
+
+    private LumaHistogram histogram;
+    private String exifBrightness;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] counts = new int[LumaHistogram.BINS];
+        int[] frame = Frames.argb(1280, 720);
+        for (int p : frame) counts[LumaHistogram.luma(p)]++;
+        histogram = new LumaHistogram();
+        histogram.merge(counts);
+        exifBrightness = "371/100";
+    }
+
+    @Benchmark
+    public void statistics(Blackhole bh) {
+        bh.consume(histogram.mean());
+        bh.consume(histogram.min());
+        bh.consume(histogram.max());
+        bh.consume(histogram.median());
+        bh.consume(histogram.percentile(5));
+        bh.consume(histogram.percentile(95));
+    }
+
+    @Benchmark
+    public String[] describeStatistics() {
+        return histogram.describe();
+    }
+
+    @Benchmark
+    public double[] brightnessToLuminance() {
+        float bv = Luminance.parseBrightnessValue(exifBrightness);
+        double lCenter = Luminance.centerLuminance(bv, histogram.mean());
+        return LegendRenderer.thresholds(lCenter, ColorMap.DEFAULT_BANDS);
+    }
+}
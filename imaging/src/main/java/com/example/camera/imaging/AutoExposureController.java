@@ -0,0 +1,205 @@
+package com.example.camera.imaging;
+
+/**
+ * 软件自动曝光：闭环调节 ISO 与曝光时间，使预览亮度（均值或百分位）趋近目标值
+ * 每次测光调用一次 update，按对数域误差做阻尼步进，总曝光量 ISO × 曝光时间
+ * 优先分配给短曝光：曝光时间先增加到 preferredMaxExposureNs，再提高 ISO，ISO 到上限后才继续延长曝光。
+ * 非线程安全，由同一个线程调用。
+ */
+public final class AutoExposureController {
+
+    /** 测光量：平均亮度或某一百分位亮度 */
+    public static final int METRIC_MEAN = -1;
+
+    /** 收敛状态 */
+    public enum State {
+        /** 误差超出容差，正在调节 */
+        SEARCHING,
+        /** 误差在容差内 */
+        CONVERGED,
+        /** 连续 settleCount 次在容差内，参数已稳定 */
+        SETTLED,
+        /** 需要继续调节但 ISO 与曝光时间均已到范围边界 */
+        LIMITED
+    }
+
+    /** 一次调节的结果 */
+    public static final class Result {
+        public final State state;
+        public final int iso;
+        public final long exposureNs;
+        /** 测得的亮度（0 ~ 255） */
+        public final double measured;
+        /** 对数误差（EV），正值表示偏暗 */
+        public final double errorEv;
+        /** 与上一次相比 ISO 或曝光时间是否改变，需要下发给相机 */
+        public final boolean changed;
+
+        Result(State state, int iso, long exposureNs, double measured, double errorEv, boolean changed) {
+            this.state = state;
+            this.iso = iso;
+            this.exposureNs = exposureNs;
+            this.measured = measured;
+            this.errorEv = errorEv;
+            this.changed = changed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s ISO %d %.2f ms (Y %.1f, %+.2f EV)",
+                    state, iso, exposureNs / 1e6, measured, errorEv);
+        }
+    }
+
+    // 预览亮度经过 gamma 编码，换算到线性域的近似指数
+    private static final double GAMMA = 2.2;
+    private static final double LN2 = Math.log(2);
+
+    private final int minIso;
+    private final int maxIso;
+    private final long minExposureNs;
+    private final long maxExposureNs;
+    private final long preferredMaxExposureNs;
+
+    private double target = 118;
+    private int metric = METRIC_MEAN;
+    private double toleranceEv = 0.15;
+    private double gain = 0.5;
+    private double maxStepEv = 1.5;
+    private int settleCount = 4;
+
+    private int iso;
+    private long exposureNs;
+    private int convergedRuns;
+    private State state = State.SEARCHING;
+
+    /**
+     * @param preferredMaxExposureNs 提高 ISO 之前允许的最长曝光时间（如 1/60 s），防止手持抖动
+     */
+    public AutoExposureController(int minIso, int maxIso, long minExposureNs, long maxExposureNs,
+                                  long preferredMaxExposureNs) {
+        if (minIso <= 0 || maxIso < minIso || minExposureNs <= 0 || maxExposureNs < minExposureNs) {
+            throw new IllegalArgumentException("Invalid sensor ranges");
+        }
+        this.minIso = minIso;
+        this.maxIso = maxIso;
+        this.minExposureNs = minExposureNs;
+        this.maxExposureNs = maxExposureNs;
+        this.preferredMaxExposureNs = clamp(preferredMaxExposureNs, minExposureNs, maxExposureNs);
+        this.iso = minIso;
+        this.exposureNs = minExposureNs;
+    }
+
+    /**
+     * 目标亮度
+     * @param target 0 ~ 255
+     * @param metric METRIC_MEAN 或百分位（0 ~ 100），例如 95 表示让亮部落在目标值
+     */
+    public void setTarget(double target, int metric) {
+        this.target = Math.max(1, Math.min(254, target));
+        this.metric = metric;
+        resetConvergence();
+    }
+
+    /**
+     * @param gain        每次修正误差的比例（0 ~ 1），越小越平稳
+     * @param maxStepEv   单次最大调节量（EV）
+     * @param toleranceEv 视为收敛的误差（EV）
+     * @param settleCount 连续收敛多少次视为稳定
+     */
+    public void setDamping(double gain, double maxStepEv, double toleranceEv, int settleCount) {
+        this.gain = Math.max(0.01, Math.min(1, gain));
+        this.maxStepEv = maxStepEv;
+        this.toleranceEv = toleranceEv;
+        this.settleCount = Math.max(1, settleCount);
+    }
+
+    /**
+     * 从当前相机参数开始调节（例如由手动切换到自动时）
+     */
+    public void reset(int iso, long exposureNs) {
+        this.iso = clamp(iso, minIso, maxIso);
+        this.exposureNs = clamp(exposureNs, minExposureNs, maxExposureNs);
+        resetConvergence();
+    }
+
+    private void resetConvergence() {
+        convergedRuns = 0;
+        state = State.SEARCHING;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public int getIso() {
+        return iso;
+    }
+
+    public long getExposureNs() {
+        return exposureNs;
+    }
+
+    /**
+     * 根据一次测光结果计算下一组参数
+     * 直方图须来自以当前参数曝光的帧；调用方应在参数生效后再测光。
+     * 空直方图不是有效测光，保持当前参数与状态。
+     */
+    public Result update(LumaHistogram histogram) {
+        if (histogram.getTotal() == 0) return unchanged(Double.NaN);
+        double measured = metric == METRIC_MEAN ? histogram.mean() : histogram.percentile(metric);
+        return update(measured);
+    }
+
+    /**
+     * @param measured 测得的亮度（0 ~ 255）；NaN、无穷或负值视为无效，保持当前参数与状态
+     */
+    public Result update(double measured) {
+        if (!(measured >= 0) || Double.isInfinite(measured)) return unchanged(measured);
+        double errorEv = GAMMA * Math.log(target / Math.max(0.5, measured)) / LN2;
+
+        if (Math.abs(errorEv) <= toleranceEv) {
+            convergedRuns++;
+            state = convergedRuns >= settleCount ? State.SETTLED : State.CONVERGED;
+            return new Result(state, iso, exposureNs, measured, errorEv, false);
+        }
+        convergedRuns = 0;
+
+        double stepEv = Math.max(-maxStepEv, Math.min(maxStepEv, errorEv * gain));
+        double total = (double) iso * exposureNs * Math.pow(2, stepEv);
+        int oldIso = iso;
+        long oldExposure = exposureNs;
+        split(total);
+
+        boolean changed = iso != oldIso || exposureNs != oldExposure;
+        state = changed ? State.SEARCHING : State.LIMITED;
+        return new Result(state, iso, exposureNs, measured, errorEv, changed);
+    }
+
+    /** 无效测光：不调节参数，也不计入收敛次数 */
+    private Result unchanged(double measured) {
+        return new Result(state, iso, exposureNs, measured, Double.NaN, false);
+    }
+
+    /**
+     * 把总曝光量分配为 ISO × 曝光时间，优先短曝光
+     */
+    private void split(double total) {
+        long exposure = clamp(Math.round(total / minIso), minExposureNs, preferredMaxExposureNs);
+        int newIso = clamp((int) Math.round(total / exposure), minIso, maxIso);
+        if (newIso == maxIso) {
+            exposure = clamp(Math.round(total / maxIso), minExposureNs, maxExposureNs);
+            exposure = Math.max(exposure, Math.min(preferredMaxExposureNs, maxExposureNs));
+        }
+        iso = newIso;
+        exposureNs = exposure;
+    }
+
+    private static int clamp(int v, int lo, int hi) {
+        return Math.max(lo, Math.min(hi, v));
+    }
+
+    private static long clamp(long v, long lo, long hi) {
+        return Math.max(lo, Math.min(hi, v));
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.camera.imaging;
+
+/**
+ * 软件自动曝光闭环：预览测光 → AutoExposureController → 回调下发
+ * 统一目标亮度、提高 ISO 前的最长曝光与收敛状态的上报，界面层只负责下发参数和显示。
+ * 下发新参数后暂停调节，直到参数在相机上生效，并再丢弃一次测光：预览直方图经 PBO 异步回读，
+ * 比最新帧晚一个测光周期，用旧参数的测光继续调节会过冲或振荡。
+ * 非线程安全，由同一个线程（自动曝光线程）调用。
+ */
+public final class AutoExposureLoop {
+
+    /** 目标平均亮度（0 ~ 255） */
+    public static final double TARGET_LUMA = 118;
+    /** 提高 ISO 前允许的最长曝光 1/60 s */
+    public static final long PREFERRED_MAX_EXPOSURE_NS = 16_666_667L;
+    /** 等待参数生效的最多测光次数，超过后不再等待（例如 HAL 对参数取整，永远不完全一致） */
+    public static final int MAX_SETTLE_METERINGS = 8;
+
+    public interface Listener {
+        /** ISO 或曝光时间改变，需要下发给相机 */
+        void onExposureChanged(AutoExposureController.Result result);
+
+        /** 收敛状态改变（reset 后的第一次测光也会回调） */
+        void onStateChanged(AutoExposureController.Result result);
+    }
+
+    /** 查询下发的参数是否已在相机上生效 */
+    public interface ExposureProbe {
+        boolean isApplied(int iso, long exposureNs);
+    }
+
+    private final AutoExposureController controller;
+    private final Listener listener;
+    private AutoExposureController.State state;
+    private ExposureProbe probe;
+    private AutoExposureController.Result awaiting;   // 已下发、等待生效的参数
+    private int settleMeterings;
+
+    public AutoExposureLoop(int minIso, int maxIso, long minExposureNs, long maxExposureNs,
+                            Listener listener) {
+        controller = new AutoExposureController(minIso, maxIso, minExposureNs, maxExposureNs,
+                PREFERRED_MAX_EXPOSURE_NS);
+        controller.setTarget(TARGET_LUMA, AutoExposureController.METRIC_MEAN);
+        this.listener = listener;
+    }
+
+    /**
+     * @param probe null 时认为参数下发后立即生效，只丢弃一次滞后的测光
+     */
+    public void setExposureProbe(ExposureProbe probe) {
+        this.probe = probe;
+    }
+
+    /** 从当前相机参数重新开始调节 */
+    public void reset(int iso, long exposureNs) {
+        controller.reset(iso, exposureNs);
+        state = null;
+        awaiting = null;
+    }
+
+    /** 按一次测光结果调节；空直方图、等待参数生效期间的测光忽略 */
+    public void onMetered(LumaHistogram histogram) {
+        if (histogram.getTotal() == 0) return;
+        if (awaiting != null) {
+            settleMeterings++;
+            if (probe != null && settleMeterings < MAX_SETTLE_METERINGS
+                    && !probe.isApplied(awaiting.iso, awaiting.exposureNs)) return;
+            // 生效后的这一次测光仍可能来自旧参数的帧
+            awaiting = null;
+            return;
+        }
+        AutoExposureController.Result result = controller.update(histogram);
+        if (result.changed) {
+            awaiting = result;
+            settleMeterings = 0;
+            listener.onExposureChanged(result);
+        }
+        if (result.state != state) {
+            state = result.state;
+            listener.onStateChanged(result);
+        }
+    }
+
+    /** 收敛状态的显示文字 */
+    public static String describe(AutoExposureController.State state) {
+        switch (state) {
+            case CONVERGED: return "收敛";
+            case SETTLED:   return "稳定";
+            case LIMITED:   return "超出范围";
+            default:        return "调节中";
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.camera.imaging;
+
+/**
+ * 按传感器时间戳索引的逐帧拍摄参数环形缓冲
+ * 相机回调线程每帧写入实际的 ISO、曝光时间、光圈与镜头状态，拍照处理时按图像时间戳取回，
+ * 不必再从 JPEG 的 EXIF 中读取。数据存放在预分配的基本类型数组中，写入不分配对象；
+ * 容量写满后覆盖最旧的帧。
+ */
+public final class CaptureMetadataRing {
+
+    /** 镜头状态未知（设备未报告 LENS_STATE） */
+    public static final int LENS_STATE_UNKNOWN = -1;
+
+    /** 一帧的拍摄参数，由调用方持有并重复使用 */
+    public static final class Frame {
+        long timestampNs;
+        int iso;
+        long exposureNs;
+        float aperture;
+        float focusDistance;
+        int lensState = LENS_STATE_UNKNOWN;
+
+        public long getTimestampNs() {
+            return timestampNs;
+        }
+
+        public int getIso() {
+            return iso;
+        }
+
+        public long getExposureNs() {
+            return exposureNs;
+        }
+
+        public float getAperture() {
+            return aperture;
+        }
+
+        /** 对焦距离（屈光度，0 为无穷远） */
+        public float getFocusDistance() {
+            return focusDistance;
+        }
+
+        /** CaptureResult.LENS_STATE，未报告时为 LENS_STATE_UNKNOWN */
+        public int getLensState() {
+            return lensState;
+        }
+
+        /** 由实际参数按 APEX 计算的亮度值 BV */
+        public float brightnessValue() {
+            return Luminance.brightnessValue(aperture, exposureNs, iso);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("t=%d ISO %d %.3f ms f/%.1f", timestampNs, iso, exposureNs / 1e6, aperture);
+        }
+    }
+
+    private final int mask;
+    private final long[] timestamps;
+    private final int[] isos;
+    private final long[] exposures;
+    private final float[] apertures;
+    private final float[] focusDistances;
+    private final int[] lensStates;
+    private long written;
+
+    /**
+     * @param capacity 保留的帧数，向上取整为 2 的幂
+     */
+    public CaptureMetadataRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mask = size - 1;
+        timestamps = new long[size];
+        isos = new int[size];
+        exposures = new long[size];
+        apertures = new float[size];
+        focusDistances = new float[size];
+        lensStates = new int[size];
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 写入一帧（相机回调线程）
+     */
+    public synchronized void put(long timestampNs, int iso, long exposureNs,
+                                 float aperture, float focusDistance, int lensState) {
+        int i = (int) (written & mask);
+        timestamps[i] = timestampNs;
+        isos[i] = iso;
+        exposures[i] = exposureNs;
+        apertures[i] = aperture;
+        focusDistances[i] = focusDistance;
+        lensStates[i] = lensState;
+        written++;
+    }
+
+    /**
+     * 取回时间戳与 timestampNs 最接近的一帧
+     * @param toleranceNs 允许的最大时间差，0 表示必须完全一致
+     * @return 找到时填充 out 并返回 true
+     */
+    public synchronized boolean get(long timestampNs, long toleranceNs, Frame out) {
+        int count = (int) Math.min(written, capacity());
+        int best = -1;
+        long bestDiff = Long.MAX_VALUE;
+        // 从最新的帧往回找，拍照请求通常在最近几帧内
+        for (int k = 1; k <= count; k++) {
+            int i = (int) ((written - k) & mask);
+            long diff = Math.abs(timestamps[i] - timestampNs);
+            if (diff < bestDiff) {
+                bestDiff = diff;
+                best = i;
+                if (diff == 0) break;
+            }
+        }
+        if (best < 0 || bestDiff > toleranceNs) return false;
+        out.timestampNs = timestamps[best];
+        out.iso = isos[best];
+        out.exposureNs = exposures[best];
+        out.aperture = apertures[best];
+        out.focusDistance = focusDistances[best];
+        out.lensState = lensStates[best];
+        return true;
+    }
+
+    /** 最新一帧，缓冲为空时返回 false */
+    public synchronized boolean latest(Frame out) {
+        if (written == 0) return false;
+        return get(timestamps[(int) ((written - 1) & mask)], 0, out);
+    }
+
+    /** 累计写入的帧数 */
+    public synchronized long getWrittenCount() {
+        return written;
+    }
+
+    public synchronized void clear() {
+        written = 0;
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.camera.imaging;
+
+import java.util.Arrays;
+
+/**
+ * 伪彩色映射表
+ * 预先计算 256 项 ARGB 查找表，逐像素映射时只需一次数组访问，无分支
+ */
+public final class ColorMap {
+
+    public static final int LUT_SIZE = 256;
+    public static final int DEFAULT_BANDS = 4;
+
+    // 等照度基础色带：黑→蓝→绿→黄→红（与预览着色器、图例一致）
+    private static final int[] ISOLUX_PALETTE = {
+            0xFF000000, 0xFF0000FF, 0xFF00FF00, 0xFFFFFF00, 0xFFFF0000
+    };
+
+    private final String name;
+    private final int bands;                 // 图例分段数
+    final int[] lut;                         // 灰度 → 打包 ARGB
+
+    private ColorMap(String name, int bands, int[] lut) {
+        this.name = name;
+        this.bands = bands;
+        this.lut = lut;
+    }
+
+    /**
+     * 由各分段端点颜色（长度 = bands + 1）逐段线性插值
+     */
+    private static ColorMap fromAnchors(String name, int[] anchors) {
+        int bands = anchors.length - 1;
+        int[] lut = new int[LUT_SIZE];
+        for (int gray = 0; gray < LUT_SIZE; gray++) {
+            float x = gray / 255f * bands;
+            int band = Math.min((int) x, bands - 1);
+            lut[gray] = lerpColor(anchors[band], anchors[band + 1], x - band);
+        }
+        return new ColorMap(name, bands, lut);
+    }
+
+    /**
+     * 默认 4 段等照度色带
+     */
+    public static ColorMap isolux() {
+        return isolux(DEFAULT_BANDS);
+    }
+
+    /**
+     * 指定分段数的等照度色带，端点颜色从基础色带上均匀取样
+     */
+    public static ColorMap isolux(int bands) {
+        if (bands < 1 || bands >= LUT_SIZE) {
+            throw new IllegalArgumentException("bands must be in [1, 255]: " + bands);
+        }
+        int[] anchors = new int[bands + 1];
+        int segments = ISOLUX_PALETTE.length - 1;
+        for (int i = 0; i <= bands; i++) {
+            float x = (float) i / bands * segments;
+            int seg = Math.min((int) x, segments - 1);
+            anchors[i] = lerpColor(ISOLUX_PALETTE[seg], ISOLUX_PALETTE[seg + 1], x - seg);
+        }
+        return fromAnchors("isolux", anchors);
+    }
+
+    /**
+     * 灰度（黑 → 白），图例仍按默认分段
+     */
+    public static ColorMap grayscale() {
+        int[] lut = new int[LUT_SIZE];
+        for (int gray = 0; gray < LUT_SIZE; gray++) {
+            lut[gray] = 0xFF000000 | (gray << 16) | (gray << 8) | gray;
+        }
+        return new ColorMap("grayscale", DEFAULT_BANDS, lut);
+    }
+
+    /**
+     * MATLAB jet：深蓝 → 蓝 → 青 → 黄 → 红 → 深红
+     */
+    public static ColorMap jet() {
+        int[] lut = new int[LUT_SIZE];
+        for (int gray = 0; gray < LUT_SIZE; gray++) {
+            float x = gray / 255f;
+            lut[gray] = rgb(1.5f - Math.abs(4 * x - 3), 1.5f - Math.abs(4 * x - 2), 1.5f - Math.abs(4 * x - 1));
+        }
+        return new ColorMap("jet", DEFAULT_BANDS, lut);
+    }
+
+    /**
+     * Google turbo（多项式近似），感知上比 jet 更均匀
+     */
+    public static ColorMap turbo() {
+        int[] lut = new int[LUT_SIZE];
+        for (int gray = 0; gray < LUT_SIZE; gray++) {
+            float x = gray / 255f;
+            float r = 0.13572138f + x * (4.61539260f + x * (-42.66032258f + x * (132.13108234f + x * (-152.94239396f + x * 59.28637943f))));
+            float g = 0.09140261f + x * (2.19418839f + x * (4.84296658f + x * (-14.18503333f + x * (4.27729857f + x * 2.82956604f))));
+            float b = 0.10667330f + x * (12.64194608f + x * (-60.58204836f + x * (110.36276771f + x * (-89.90310912f + x * 27.34824973f))));
+            lut[gray] = rgb(r, g, b);
+        }
+        return new ColorMap("turbo", DEFAULT_BANDS, lut);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getBands() {
+        return bands;
+    }
+
+    /**
+     * 单个灰度值对应的颜色
+     */
+    public int map(int gray) {
+        return lut[gray & 0xFF];
+    }
+
+    /**
+     * 查找表副本（用于上传纹理等）
+     */
+    public int[] copyLut() {
+        return lut.clone();
+    }
+
+    /**
+     * 查找表按 RGBA 字节排列（256 × 1 纹理数据），与 CPU 路径使用同一张表
+     */
+    public byte[] toRgbaBytes() {
+        byte[] rgba = new byte[LUT_SIZE * 4];
+        for (int i = 0; i < LUT_SIZE; i++) {
+            int c = lut[i];
+            rgba[i * 4] = (byte) (c >> 16);
+            rgba[i * 4 + 1] = (byte) (c >> 8);
+            rgba[i * 4 + 2] = (byte) c;
+            rgba[i * 4 + 3] = (byte) (c >>> 24);
+        }
+        return rgba;
+    }
+
+    /**
+     * 第 band 段在查找表中的颜色序列（含两端），图例按此绘制渐变
+     */
+    public int[] bandColors(int band) {
+        int from = Math.round(band * 255f / bands);
+        int to = Math.round((band + 1) * 255f / bands);
+        return Arrays.copyOfRange(lut, from, to + 1);
+    }
+
+    /**
+     * 就地映射整幅像素：以 BT.601 亮度作为灰度（与预览着色器一致）
+     */
+    public void apply(int[] pixels) {
+        apply(pixels, 0, pixels.length);
+    }
+
+    /**
+     * 就地映射 [from, to) 范围内的像素
+     */
+    public void apply(int[] pixels, int from, int to) {
+        final int[] table = lut;
+        for (int i = from; i < to; i++) {
+            pixels[i] = table[LumaHistogram.luma(pixels[i])];
+        }
+    }
+
+    /**
+     * 按行带并行就地映射 width × height 像素，结果与顺序版本逐位一致
+     */
+    public void apply(int[] pixels, int width, int height, RowBandExecutor executor) {
+        executor.forEach(height, (rowStart, rowEnd) ->
+                apply(pixels, rowStart * width, rowEnd * width));
+    }
+
+    private static int rgb(float r, float g, float b) {
+        return 0xFF000000 | (unit(r) << 16) | (unit(g) << 8) | unit(b);
+    }
+
+    private static int unit(float v) {
+        return Math.round(Math.max(0f, Math.min(1f, v)) * 255f);
+    }
+
+    private static int lerpColor(int c0, int c1, float t) {
+        int r = lerp((c0 >> 16) & 0xFF, (c1 >> 16) & 0xFF, t);
+        int g = lerp((c0 >> 8) & 0xFF, (c1 >> 8) & 0xFF, t);
+        int b = lerp(c0 & 0xFF, c1 & 0xFF, t);
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private static int lerp(int a, int b, float t) {
+        return Math.round(a + (b - a) * t);
+    }
+}
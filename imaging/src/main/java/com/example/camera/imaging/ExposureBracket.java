@@ -0,0 +1,60 @@
+package com.example.camera.imaging;
+
+/**
+ * 包围曝光序列：在传感器 ISO × 曝光时间范围内按总曝光量等比（等 EV 间隔）取 N 组参数
+ * 每组优先使用最低 ISO、改变曝光时间以降低噪声；曝光时间到上限后再提高 ISO。
+ * 序列按总曝光量从小到大排列。
+ */
+public final class ExposureBracket {
+
+    private final int[] isos;
+    private final long[] exposures;
+
+    private ExposureBracket(int[] isos, long[] exposures) {
+        this.isos = isos;
+        this.exposures = exposures;
+    }
+
+    /**
+     * @param frames         帧数（≥ 2）
+     * @param capExposureNs  单帧最长曝光，避免包围序列耗时过长（≤ 0 表示不限制）
+     */
+    public static ExposureBracket plan(int minIso, int maxIso, long minExposureNs, long maxExposureNs,
+                                       long capExposureNs, int frames) {
+        if (frames < 2 || minIso <= 0 || maxIso < minIso || minExposureNs <= 0 || maxExposureNs < minExposureNs) {
+            throw new IllegalArgumentException("Invalid bracket parameters");
+        }
+        long longest = capExposureNs > 0 ? Math.max(minExposureNs, Math.min(maxExposureNs, capExposureNs))
+                : maxExposureNs;
+        double logMin = Math.log((double) minIso * minExposureNs);
+        double logMax = Math.log((double) maxIso * longest);
+
+        int[] isos = new int[frames];
+        long[] exposures = new long[frames];
+        for (int i = 0; i < frames; i++) {
+            double total = Math.exp(logMin + (logMax - logMin) * i / (frames - 1));
+            long exposure = Math.max(minExposureNs, Math.min(longest, Math.round(total / minIso)));
+            int iso = (int) Math.max(minIso, Math.min(maxIso, Math.round(total / exposure)));
+            isos[i] = iso;
+            exposures[i] = exposure;
+        }
+        return new ExposureBracket(isos, exposures);
+    }
+
+    public int size() {
+        return isos.length;
+    }
+
+    public int getIso(int index) {
+        return isos[index];
+    }
+
+    public long getExposureNs(int index) {
+        return exposures[index];
+    }
+
+    /** 第 index 帧相对 ISO 100 的曝光量之比（EV） */
+    public double getEv(int index) {
+        return Math.log(isos[index] / 100.0 * exposures[index] / 1e9) / Math.log(2);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.camera.imaging;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 按长度索引的 int[] 像素缓冲池
+ * 连拍时复用整帧像素数组，避免反复分配大数组引起 GC 停顿或 OOM。
+ * 取出的数组长度不小于请求长度（最多为请求的 2 倍），内容未清零。
+ */
+public final class IntBufferPool {
+
+    // 超过请求长度该倍数的缓冲区不复用，避免小请求占用大数组
+    private static final int MAX_SLACK = 2;
+
+    private final TreeMap<Integer, ArrayDeque<int[]>> buffers = new TreeMap<>();
+    private final long maxPooledBytes;
+    private long pooledBytes;
+
+    public IntBufferPool(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+    }
+
+    /**
+     * 取出长度至少为 length 的数组，池中没有合适的则新分配
+     */
+    public synchronized int[] acquire(int length) {
+        Map.Entry<Integer, ArrayDeque<int[]>> entry = buffers.ceilingEntry(length);
+        if (entry != null && entry.getKey() <= (long) length * MAX_SLACK) {
+            ArrayDeque<int[]> queue = entry.getValue();
+            int[] buffer = queue.pop();
+            if (queue.isEmpty()) buffers.remove(entry.getKey());
+            pooledBytes -= bytesOf(buffer);
+            return buffer;
+        }
+        return new int[length];
+    }
+
+    /**
+     * 归还数组；超出容量上限时优先丢弃最大的缓冲区
+     */
+    public synchronized void release(int[] buffer) {
+        if (buffer == null) return;
+        long bytes = bytesOf(buffer);
+        if (bytes > maxPooledBytes) return;
+        while (pooledBytes + bytes > maxPooledBytes && !buffers.isEmpty()) {
+            Map.Entry<Integer, ArrayDeque<int[]>> largest = buffers.lastEntry();
+            int[] evicted = largest.getValue().pop();
+            if (largest.getValue().isEmpty()) buffers.remove(largest.getKey());
+            pooledBytes -= bytesOf(evicted);
+        }
+        buffers.computeIfAbsent(buffer.length, k -> new ArrayDeque<>()).push(buffer);
+        pooledBytes += bytes;
+    }
+
+    public synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    public synchronized void clear() {
+        buffers.clear();
+        pooledBytes = 0;
+    }
+
+    private static long bytesOf(int[] buffer) {
+        return (long) buffer.length * Integer.BYTES;
+    }
+}
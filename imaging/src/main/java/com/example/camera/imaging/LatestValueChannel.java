@@ -0,0 +1,146 @@
+package com.example.camera.imaging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * 最新值优先的下发通道
+ * 同一时刻最多只有一个请求在途：在途期间提交的值只保留最新一个，上一个请求完成后再下发。
+ * 没有下发目标（例如相机尚未绑定）时，值保留到 setSender 之后再发。
+ * runWhenIdle 的动作在已提交的值全部处理完（生效、失败或暂时无法下发）后执行，不会无限期等待。
+ */
+public final class LatestValueChannel<T> {
+
+    /** 下发目标 */
+    public interface Sender<T> {
+        /**
+         * 开始下发 value，结束时（任意线程）调用一次 completion；
+         * 抛出 RuntimeException 视为下发失败
+         */
+        void send(T value, Completion completion);
+    }
+
+    public interface Completion {
+        void onComplete(boolean success);
+    }
+
+    public interface IdleAction {
+        /** @param applied 最后提交的值是否已生效；false 表示下发失败或没有下发目标 */
+        void onIdle(boolean applied);
+    }
+
+    private final Executor callbackExecutor;
+
+    // 以下由 this 保护
+    private Sender<T> sender;
+    private boolean inFlight;
+    private boolean hasPending;
+    private T pending;
+    private boolean lastApplied = true;
+    private final List<IdleAction> idleActions = new ArrayList<>();
+
+    private long submitted;
+    private long sent;
+    private long coalesced;
+    private long failed;
+
+    /**
+     * @param callbackExecutor 请求完成与空闲动作的执行线程
+     */
+    public LatestValueChannel(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * 更换下发目标，null 表示暂时没有；尚未下发的值发往新目标
+     */
+    public synchronized void setSender(Sender<T> sender) {
+        this.sender = sender;
+        if (!inFlight) drainLocked();
+    }
+
+    /** 提交一个值，覆盖尚未下发的旧值 */
+    public synchronized void submit(T value) {
+        submitted++;
+        if (hasPending) coalesced++;
+        pending = value;
+        hasPending = true;
+        if (!inFlight) drainLocked();
+    }
+
+    /**
+     * 已提交的值都处理完后在 callbackExecutor 上执行 action；当前没有请求在途时立即执行
+     */
+    public synchronized void runWhenIdle(IdleAction action) {
+        if (inFlight) {
+            idleActions.add(action);
+        } else {
+            boolean applied = !hasPending && lastApplied;
+            callbackExecutor.execute(() -> action.onIdle(applied));
+        }
+    }
+
+    /** 没有请求在途，也没有等待下发的值 */
+    public synchronized boolean isIdle() {
+        return !inFlight && !hasPending;
+    }
+
+    private void sendPendingLocked() {
+        if (!hasPending || sender == null) return;
+        T value = pending;
+        pending = null;
+        hasPending = false;
+        inFlight = true;
+        try {
+            sender.send(value, success -> callbackExecutor.execute(() -> onRequestComplete(success)));
+            sent++;
+        } catch (RuntimeException e) {
+            inFlight = false;
+            failed++;
+            lastApplied = false;
+        }
+    }
+
+    private synchronized void onRequestComplete(boolean success) {
+        inFlight = false;
+        if (!success) failed++;
+        lastApplied = success;
+        drainLocked();
+    }
+
+    /** 不在途时：发出等待中的值；仍不在途则结束所有等待空闲的动作 */
+    private void drainLocked() {
+        sendPendingLocked();
+        if (inFlight || idleActions.isEmpty()) return;
+        boolean applied = !hasPending && lastApplied;
+        for (IdleAction action : idleActions) callbackExecutor.execute(() -> action.onIdle(applied));
+        idleActions.clear();
+    }
+
+    /** 提交次数 */
+    public synchronized long getSubmittedCount() {
+        return submitted;
+    }
+
+    /** 实际下发的次数 */
+    public synchronized long getSentCount() {
+        return sent;
+    }
+
+    /** 等待期间被更新值覆盖、未下发的次数 */
+    public synchronized long getCoalescedCount() {
+        return coalesced;
+    }
+
+    /** 下发失败或未生效的次数 */
+    public synchronized long getFailedCount() {
+        return failed;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "submitted=" + submitted + " applied=" + sent
+                + " coalesced=" + coalesced + " failed=" + failed;
+    }
+}
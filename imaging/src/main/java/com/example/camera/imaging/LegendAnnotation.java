@@ -0,0 +1,59 @@
+package com.example.camera.imaging;
+
+/**
+ * 伪彩色合成图像上的图例文字与统计信息
+ * 图例亮度分段：有亮度表（设备标定或 HDR 合成）时按分段边界灰度查表；否则解析 BV，
+ * 无 BV 时按全帧平均灰度估计中心亮度。拍照结果与模型层共用，调用方只负责在画布上绘制。
+ */
+public final class LegendAnnotation {
+
+    private final double[] thresholds;
+    private final String[] statisticsLines;
+
+    private LegendAnnotation(double[] thresholds, String[] statisticsLines) {
+        this.thresholds = thresholds;
+        this.statisticsLines = statisticsLines;
+    }
+
+    /**
+     * @param histogram       全帧灰度直方图
+     * @param exifBrightness  BV 文本（计算值或 EXIF），无法解析时按平均灰度估计
+     * @param levels          图例分段数（色表的 bands）
+     * @param luminanceRow    每个灰度对应的亮度 (cd/m²)，null 时使用经验公式
+     * @param luminanceSource 亮度表来源，显示在统计信息中
+     */
+    public static LegendAnnotation create(LumaHistogram histogram, String exifBrightness, int levels,
+                                          float[] luminanceRow, String luminanceSource) {
+        float bv = Luminance.parseBrightnessValue(exifBrightness);
+        double[] thresholds = luminanceRow != null
+                ? LegendRenderer.thresholds(luminanceRow, levels)
+                : LegendRenderer.thresholds(Luminance.centerLuminance(bv, histogram.mean()), levels);
+
+        String[] grayLines = histogram.describe();
+        String luminanceLine = luminanceRow != null
+                ? Luminance.describeMean(histogram.mean(luminanceRow), luminanceSource)
+                : Luminance.describe(bv);
+        return new LegendAnnotation(thresholds, new String[]{
+                grayLines[0], grayLines[1], String.format("BV = %s", exifBrightness), luminanceLine});
+    }
+
+    public int getLevels() {
+        return thresholds.length - 1;
+    }
+
+    /** 各分段边界亮度，长度 = levels + 1 */
+    public double getThreshold(int index) {
+        return thresholds[index];
+    }
+
+    /** 第 level 段图例的文字，逐行绘制 */
+    public String[] labelLines(int level) {
+        return new String[]{"L", String.format("%.2f", thresholds[level]), "↓",
+                String.format("%.2f", thresholds[level + 1])};
+    }
+
+    /** 统计信息：灰度统计两行、BV、亮度 */
+    public String[] getStatisticsLines() {
+        return statisticsLines.clone();
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.camera.imaging;
+
+import java.util.Arrays;
+
+/**
+ * 亮度图例色块
+ * 直接把各分段的渐变色块写入合成图像的像素缓冲区，画布只需再绘制文字
+ */
+public final class LegendRenderer {
+
+    public static final int LEGEND_WIDTH = 190;
+    public static final int MIN_ITEM_HEIGHT = 50;
+
+    // 色块相对分段格子的内边距（与原先画布绘制一致）
+    private static final int RECT_INSET = 10;
+    private static final int GRADIENT_INSET_X = 15;
+
+    private LegendRenderer() {}
+
+    /**
+     * 单个分段格子的高度
+     */
+    public static int itemHeight(int height, int levels) {
+        return Math.max(height / levels, MIN_ITEM_HEIGHT);
+    }
+
+    /**
+     * 以 lCenter 为中心、±25% 范围均分的亮度分段阈值，长度 = levels + 1
+     */
+    public static double[] thresholds(double lCenter, int levels) {
+        double delta = lCenter * 0.25;
+        double[] lThresholds = new double[levels + 1];
+        for (int i = 0; i <= levels; i++) {
+            lThresholds[i] = lCenter - delta + (2 * delta) * i / levels;
+        }
+        return lThresholds;
+    }
+
+    /**
+     * 按灰度→亮度行取各分段边界灰度对应的亮度，长度 = levels + 1
+     * 分段边界与 fillSwatches 的色块区间一致
+     */
+    public static double[] thresholds(float[] luminanceRow, int levels) {
+        double[] lThresholds = new double[levels + 1];
+        for (int i = 0; i <= levels; i++) {
+            lThresholds[i] = luminanceRow[Math.round(i * 255f / levels)];
+        }
+        return lThresholds;
+    }
+
+    /**
+     * 在 dst 中 [x0, x0 + legendWidth) 列范围内绘制各分段的对角渐变色块，
+     * 颜色取自伪彩色查找表中该分段对应的区间；色块以外的区域清为透明
+     */
+    public static void fillSwatches(int[] dst, int dstStride, int x0, int legendWidth,
+                                    int height, ColorMap colorMap) {
+        final int levels = colorMap.getBands();
+        final int itemHeight = itemHeight(height, levels);
+        final int[] lut = colorMap.lut;
+
+        // dst 可能来自复用池，先清空图例区域
+        for (int py = 0; py < height; py++) {
+            int row = py * dstStride + x0;
+            Arrays.fill(dst, row, row + legendWidth, 0);
+        }
+
+        for (int i = 0; i < levels; i++) {
+            int y = i * itemHeight;
+            int top = y + RECT_INSET;
+            int bottom = Math.min(y + itemHeight - RECT_INSET, height);
+            int left = x0 + RECT_INSET;
+            int right = x0 + legendWidth - RECT_INSET;
+            if (top >= bottom || left >= right) continue;
+
+            int from = Math.round(i * 255f / levels);
+            int span = Math.round((i + 1) * 255f / levels) - from;
+
+            // 渐变方向：左上 → 右下
+            float gx0 = x0 + GRADIENT_INSET_X;
+            float gy0 = y + RECT_INSET;
+            float gdx = (x0 + legendWidth - GRADIENT_INSET_X) - gx0;
+            float gdy = (y + itemHeight - RECT_INSET) - gy0;
+            float invLen2 = 1f / (gdx * gdx + gdy * gdy);
+            float stepX = gdx * invLen2;
+
+            for (int py = top; py < bottom; py++) {
+                float t = ((left + 0.5f - gx0) * gdx + (py + 0.5f - gy0) * gdy) * invLen2;
+                int row = py * dstStride;
+                for (int px = left; px < right; px++, t += stepX) {
+                    float c = t < 0f ? 0f : (t > 1f ? 1f : t);
+                    dst[row + px] = lut[from + Math.round(c * span)];
+                }
+            }
+        }
+    }
+}
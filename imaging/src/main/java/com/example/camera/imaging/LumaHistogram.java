@@ -0,0 +1,117 @@
+package com.example.camera.imaging;
+
+import java.util.Arrays;
+
+/**
+ * 256 级亮度直方图及其统计量
+ * 由伪彩色内核在上色的同一次遍历中累加，无需再次遍历整幅图像
+ */
+public final class LumaHistogram {
+
+    public static final int BINS = 256;
+
+    private final long[] counts = new long[BINS];
+    private long total;
+
+    /**
+     * ARGB 像素的 BT.601 亮度（定点近似 0.299R + 0.587G + 0.114B）
+     */
+    public static int luma(int argb) {
+        return (77 * ((argb >> 16) & 0xFF) + 150 * ((argb >> 8) & 0xFF) + 29 * (argb & 0xFF) + 128) >> 8;
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(counts, 0);
+        total = 0;
+    }
+
+    /**
+     * 合并一个局部直方图（并行行带各自累加后汇总）
+     */
+    public synchronized void merge(int[] localCounts) {
+        for (int i = 0; i < BINS; i++) {
+            counts[i] += localCounts[i];
+            total += localCounts[i];
+        }
+    }
+
+    public synchronized long getCount(int bin) {
+        return counts[bin];
+    }
+
+    public synchronized long getTotal() {
+        return total;
+    }
+
+    public synchronized double mean() {
+        if (total == 0) return Double.NaN;
+        double sum = 0;
+        for (int i = 0; i < BINS; i++) sum += (double) i * counts[i];
+        return sum / total;
+    }
+
+    /**
+     * 按灰度查表后的加权均值，例如 values 为标定亮度行时得到全帧平均亮度 (cd/m²)
+     */
+    public synchronized double mean(float[] values) {
+        if (total == 0) return Double.NaN;
+        double sum = 0;
+        for (int i = 0; i < BINS; i++) sum += (double) values[i] * counts[i];
+        return sum / total;
+    }
+
+    public synchronized int min() {
+        for (int i = 0; i < BINS; i++) {
+            if (counts[i] != 0) return i;
+        }
+        return -1;
+    }
+
+    public synchronized int max() {
+        for (int i = BINS - 1; i >= 0; i--) {
+            if (counts[i] != 0) return i;
+        }
+        return -1;
+    }
+
+    public int median() {
+        return percentile(50);
+    }
+
+    /**
+     * 第 p 百分位亮度（p ∈ [0, 100]），即累计像素数首次达到 p% 的亮度级
+     */
+    public synchronized int percentile(double p) {
+        if (total == 0) return -1;
+        if (p < 0 || p > 100) {
+            throw new IllegalArgumentException("percentile must be in [0, 100]: " + p);
+        }
+        long rank = Math.max(1, (long) Math.ceil(p / 100.0 * total));
+        long cumulative = 0;
+        for (int i = 0; i < BINS; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank) return i;
+        }
+        return BINS - 1;
+    }
+
+    /**
+     * 统计信息中的灰度两行：均值/中位数，以及 min/P5/P95/max
+     */
+    public synchronized String[] describe() {
+        return new String[]{
+                String.format("Gray: mean=%.2f, median=%d", mean(), median()),
+                String.format("min=%d, P5=%d, P95=%d, max=%d", min(), percentile(5), percentile(95), max())
+        };
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "LumaHistogram{" +
+                "total=" + total +
+                ", mean=" + mean() +
+                ", min=" + min() +
+                ", max=" + max() +
+                '}';
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.camera.imaging;
+
+/**
+ * 亮度值（BV）的解析（EXIF）或计算（APEX），以及亮度 L (cd/m²) 换算
+ * 有设备标定表时按 (像素值, ISO, 曝光时间) 查表得到亮度，否则使用经验公式。
+ */
+public final class Luminance {
+
+    // 经验公式 L = 2.9 × exp(0.729 × BV)
+    private static final double L_SCALE = 2.9;
+    private static final double L_EXPONENT = 0.729;
+
+    private static volatile LuminanceCalibration calibration;
+
+    private Luminance() {}
+
+    /**
+     * 设置本设备的亮度标定表，null 表示使用经验公式
+     */
+    public static void setCalibration(LuminanceCalibration calibration) {
+        Luminance.calibration = calibration;
+    }
+
+    public static LuminanceCalibration getCalibration() {
+        return calibration;
+    }
+
+    /** 统计信息中标定亮度的来源说明，没有标定表时为 null */
+    public static String calibrationSource() {
+        LuminanceCalibration c = calibration;
+        return c != null ? "标定 " + c.getName() : null;
+    }
+
+    /**
+     * 该曝光参数下每个灰度对应的标定亮度 (cd/m²)
+     * @return 没有标定表或参数未知时返回 null
+     */
+    public static float[] calibratedRow(int iso, long exposureNs) {
+        LuminanceCalibration c = calibration;
+        if (c == null || iso <= 0 || exposureNs <= 0) return null;
+        return c.luminanceRow(iso, exposureNs, null);
+    }
+
+    /**
+     * 解析 EXIF BrightnessValue，支持有理数 "num/den" 和小数形式；
+     * 缺失、"N/A"、"读取失败" 或格式错误时返回 NaN
+     */
+    public static float parseBrightnessValue(String exifBrightness) {
+        if (exifBrightness == null) return Float.NaN;
+        String value = exifBrightness.trim();
+        if (value.isEmpty() || value.equals("N/A") || value.equals("读取失败")) return Float.NaN;
+        try {
+            int slash = value.indexOf('/');
+            if (slash >= 0) {
+                return Float.parseFloat(value.substring(0, slash).trim())
+                        / Float.parseFloat(value.substring(slash + 1).trim());
+            }
+            return Float.parseFloat(value);
+        } catch (NumberFormatException e) {
+            return Float.NaN;
+        }
+    }
+
+    /**
+     * 由实际拍摄参数按 APEX 计算 BV = Av + Tv − Sv
+     * Av = log2(N²)，Tv = −log2(t)，Sv = log2(ISO / 3.125)（ISO 100 对应 Sv = 5）
+     * @return 参数无效时返回 NaN
+     */
+    public static float brightnessValue(float aperture, long exposureNs, int iso) {
+        if (aperture <= 0 || exposureNs <= 0 || iso <= 0) return Float.NaN;
+        double av = 2 * log2(aperture);
+        double tv = -log2(exposureNs / 1e9);
+        double sv = log2(iso / 3.125);
+        return (float) (av + tv - sv);
+    }
+
+    private static double log2(double x) {
+        return Math.log(x) / Math.log(2);
+    }
+
+    /**
+     * 由 BV 计算亮度 L (cd/m²)
+     */
+    public static double fromBrightnessValue(double bv) {
+        return L_SCALE * Math.exp(L_EXPONENT * bv);
+    }
+
+    /**
+     * 图例中心亮度：有 BV 时按公式计算，否则按平均灰度粗略估计（50 ~ 450）
+     */
+    public static double centerLuminance(float bv, double meanGray) {
+        return Float.isNaN(bv) ? meanGray / 255.0 * 400 + 50 : fromBrightnessValue(bv);
+    }
+
+    /**
+     * 统计信息中的亮度一行：逐灰度查表得到的全帧平均亮度
+     * @param source 亮度表来源（如 "标定 Pixel 7"、"HDR"）
+     */
+    public static String describeMean(double meanLuminance, String source) {
+        return String.format("L = %.2f cd/m²（%s）", meanLuminance, source);
+    }
+
+    /**
+     * 统计信息中的亮度一行
+     */
+    public static String describe(float bv) {
+        return Float.isNaN(bv) ? "L = N/A"
+                : String.format("L = 2.9 × exp(0.729×BV) = %.2f", fromBrightnessValue(bv));
+    }
+}
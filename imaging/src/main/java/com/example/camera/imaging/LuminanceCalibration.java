@@ -0,0 +1,201 @@
+package com.example.camera.imaging;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单台设备的亮度标定：(像素值, ISO, 曝光时间) → 亮度 L (cd/m²)
+ * 由亮度计实测的参考点构建。同一 L 下像素响应只取决于曝光量 ISO × t，
+ * 因此每个参考点换算为与曝光无关的响应 s = log2(L × ISO × t)，
+ * 再插值成稠密网格：曝光量轴按 1/4 EV 等分，像素值轴 0 ~ 255。
+ * 查询时先为一组 (ISO, t) 生成 256 项的亮度行，逐像素换算只需查表，内层循环不做 exp。
+ *
+ * 标定文件为 CSV，每行 "像素值,ISO,曝光时间(ns),亮度(cd/m²)"，# 开头为注释。
+ */
+public final class LuminanceCalibration {
+
+    /** 曝光量轴的网格间隔（EV） */
+    public static final double GRID_STEP_EV = 0.25;
+
+    // 同一曝光量分组的容差（EV）
+    private static final double GROUP_TOLERANCE_EV = 0.05;
+    // 参考点范围以外按 gamma 2.2 外推
+    private static final double GAMMA = 2.2;
+
+    private final String name;
+    private final double minEv;
+    private final int evSteps;
+    // [曝光量网格][像素值] 的响应 s = log2(L × ISO × t)
+    private final float[][] grid;
+
+    private LuminanceCalibration(String name, double minEv, float[][] grid) {
+        this.name = name;
+        this.minEv = minEv;
+        this.evSteps = grid.length;
+        this.grid = grid;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 生成该曝光参数下每个像素值对应的亮度
+     * @param out 长度至少 256，为 null 时新分配
+     * @return 亮度行（cd/m²）
+     */
+    public float[] luminanceRow(int iso, long exposureNs, float[] out) {
+        if (out == null) out = new float[LumaHistogram.BINS];
+        double exposure = iso * (exposureNs / 1e9);
+        double pos = (log2(exposure) - minEv) / GRID_STEP_EV;
+        int i0 = (int) Math.floor(pos);
+        float t = (float) (pos - i0);
+        if (i0 < 0) {
+            i0 = 0;
+            t = 0;
+        } else if (i0 >= evSteps - 1) {
+            i0 = evSteps - 1;
+            t = 0;
+        }
+        float[] a = grid[i0];
+        float[] b = grid[Math.min(i0 + 1, evSteps - 1)];
+        double invExposure = 1.0 / exposure;
+        for (int z = 0; z < LumaHistogram.BINS; z++) {
+            double s = a[z] + (b[z] - a[z]) * t;
+            out[z] = (float) (Math.pow(2, s) * invExposure);
+        }
+        return out;
+    }
+
+    /**
+     * 读取 CSV 标定文件
+     * @throws IOException 格式错误或参考点不足
+     */
+    public static LuminanceCalibration parse(String name, Reader reader) throws IOException {
+        Builder builder = new Builder(name);
+        BufferedReader in = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] fields = line.split("\\s*,\\s*");
+            if (fields.length < 4) throw new IOException("Line " + lineNumber + ": expected 4 fields");
+            try {
+                builder.add(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]),
+                        Long.parseLong(fields[2]), Double.parseDouble(fields[3]));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        try {
+            return builder.build();
+        } catch (IllegalStateException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 由参考点构建标定表
+     */
+    public static final class Builder {
+        private final String name;
+        private final List<double[]> points = new ArrayList<>();   // {ev, pixel, s}
+
+        public Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @param pixel     像素值（0 ~ 255）
+         * @param luminance 亮度计读数（cd/m²）
+         */
+        public Builder add(int pixel, int iso, long exposureNs, double luminance) {
+            if (pixel < 0 || pixel > 255 || iso <= 0 || exposureNs <= 0 || luminance <= 0) {
+                throw new IllegalArgumentException("Invalid reference point");
+            }
+            double exposure = iso * (exposureNs / 1e9);
+            points.add(new double[]{log2(exposure), pixel, log2(luminance * exposure)});
+            return this;
+        }
+
+        public LuminanceCalibration build() {
+            if (points.isEmpty()) throw new IllegalStateException("No reference points");
+            points.sort((p, q) -> Double.compare(p[0], q[0]));
+
+            // 按曝光量分组，每组插值成完整的像素响应曲线
+            List<Double> groupEv = new ArrayList<>();
+            List<float[]> curves = new ArrayList<>();
+            int start = 0;
+            while (start < points.size()) {
+                int end = start + 1;
+                while (end < points.size()
+                        && points.get(end)[0] - points.get(start)[0] <= GROUP_TOLERANCE_EV) end++;
+                List<double[]> group = new ArrayList<>(points.subList(start, end));
+                double ev = 0;
+                for (double[] p : group) ev += p[0];
+                groupEv.add(ev / group.size());
+                curves.add(responseCurve(group));
+                start = end;
+            }
+
+            double minEv = groupEv.get(0);
+            double maxEv = groupEv.get(groupEv.size() - 1);
+            int steps = (int) Math.ceil((maxEv - minEv) / GRID_STEP_EV) + 1;
+            float[][] grid = new float[steps][];
+            int g = 0;
+            for (int i = 0; i < steps; i++) {
+                double ev = minEv + i * GRID_STEP_EV;
+                while (g < groupEv.size() - 2 && groupEv.get(g + 1) < ev) g++;
+                grid[i] = interpolate(curves, groupEv, g, ev);
+            }
+            return new LuminanceCalibration(name, minEv, grid);
+        }
+
+        /** 组内参考点在 log(像素值) 上线性插值（相当于分段幂函数）；两端以外按 gamma 外推 */
+        private static float[] responseCurve(List<double[]> group) {
+            group.sort((p, q) -> Double.compare(p[1], q[1]));
+            float[] curve = new float[LumaHistogram.BINS];
+            double[] first = group.get(0);
+            double[] last = group.get(group.size() - 1);
+            int k = 0;
+            for (int z = 0; z < LumaHistogram.BINS; z++) {
+                double s;
+                if (z <= first[1]) {
+                    s = first[2] + GAMMA * (log2(Math.max(z, 0.5)) - log2(Math.max(first[1], 0.5)));
+                } else if (z >= last[1]) {
+                    s = last[2] + GAMMA * (log2(z) - log2(Math.max(last[1], 0.5)));
+                } else {
+                    while (group.get(k + 1)[1] < z) k++;
+                    double[] p = group.get(k), q = group.get(k + 1);
+                    double lp = log2(Math.max(p[1], 0.5)), lq = log2(Math.max(q[1], 0.5));
+                    double t = lq == lp ? 0 : (log2(z) - lp) / (lq - lp);
+                    s = p[2] + (q[2] - p[2]) * t;
+                }
+                curve[z] = (float) s;
+            }
+            return curve;
+        }
+
+        /** 曝光量方向在相邻两组之间线性插值，范围以外取最近一组 */
+        private static float[] interpolate(List<float[]> curves, List<Double> groupEv, int g, double ev) {
+            if (curves.size() == 1 || ev <= groupEv.get(0)) return curves.get(0).clone();
+            int h = Math.min(g + 1, curves.size() - 1);
+            double e0 = groupEv.get(g), e1 = groupEv.get(h);
+            if (ev >= e1 || e1 == e0) return curves.get(h).clone();
+            float t = (float) ((ev - e0) / (e1 - e0));
+            float[] a = curves.get(g), b = curves.get(h);
+            float[] row = new float[LumaHistogram.BINS];
+            for (int z = 0; z < row.length; z++) row[z] = a[z] + (b[z] - a[z]) * t;
+            return row;
+        }
+    }
+
+    private static double log2(double x) {
+        return Math.log(x) / Math.log(2);
+    }
+}
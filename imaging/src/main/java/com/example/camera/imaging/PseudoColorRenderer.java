@@ -0,0 +1,154 @@
+package com.example.camera.imaging;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 伪彩色 + 旋转 + 合成 融合内核
+ * 一次遍历源像素，查表上色后直接写入最终合成图像中旋转后的位置，
+ * 省去中间的伪彩色位图、旋转位图和画布拷贝。
+ */
+public final class PseudoColorRenderer {
+
+    // 块宽：旋转写入时让目标行保持在缓存中
+    private static final int TILE = 64;
+
+    private PseudoColorRenderer() {}
+
+    /**
+     * 规范化旋转角度，只支持 90° 的整数倍（顺时针）
+     */
+    public static int normalizeRotation(int rotationDegrees) {
+        int r = ((rotationDegrees % 360) + 360) % 360;
+        if (r % 90 != 0) {
+            throw new IllegalArgumentException("rotation must be a multiple of 90: " + rotationDegrees);
+        }
+        return r;
+    }
+
+    public static int rotatedWidth(int width, int height, int rotationDegrees) {
+        return normalizeRotation(rotationDegrees) % 180 == 0 ? width : height;
+    }
+
+    public static int rotatedHeight(int width, int height, int rotationDegrees) {
+        return normalizeRotation(rotationDegrees) % 180 == 0 ? height : width;
+    }
+
+    /**
+     * 将 src（width × height，ARGB）按亮度伪彩色化并顺时针旋转 rotationDegrees，
+     * 写入 dst 左上角；dstStride 为 dst 的行跨度（可大于旋转后宽度，用于右侧拼接图例）。
+     * histogram 非空时在同一次遍历中累加亮度直方图。
+     *
+     * @param executor 为 null 时单线程处理
+     */
+    public static void render(int[] src, int width, int height, int rotationDegrees,
+                              ColorMap colorMap, int[] dst, int dstStride,
+                              LumaHistogram histogram, RowBandExecutor executor) {
+        final int[] map = destinationMapping(width, height, rotationDegrees, dst, dstStride);
+        final int base = map[0], dx = map[1], dy = map[2];
+
+        final int[] lut = colorMap.lut;
+        RowBandExecutor.RowKernel kernel = (rowStart, rowEnd) -> {
+            // 每个行带使用局部直方图，结束时一次性合并
+            int[] bins = histogram != null ? new int[LumaHistogram.BINS] : null;
+            for (int x0 = 0; x0 < width; x0 += TILE) {
+                int x1 = Math.min(x0 + TILE, width);
+                for (int y = rowStart; y < rowEnd; y++) {
+                    int si = y * width + x0;
+                    int di = base + x0 * dx + y * dy;
+                    if (bins != null) {
+                        for (int x = x0; x < x1; x++, si++, di += dx) {
+                            int p = src[si];
+                            int luma = (77 * ((p >> 16) & 0xFF) + 150 * ((p >> 8) & 0xFF) + 29 * (p & 0xFF) + 128) >> 8;
+                            dst[di] = lut[luma];
+                            bins[luma]++;
+                        }
+                    } else {
+                        for (int x = x0; x < x1; x++, si++, di += dx) {
+                            int p = src[si];
+                            dst[di] = lut[(77 * ((p >> 16) & 0xFF) + 150 * ((p >> 8) & 0xFF) + 29 * (p & 0xFF) + 128) >> 8];
+                        }
+                    }
+                }
+            }
+            if (bins != null) histogram.merge(bins);
+        };
+        run(kernel, height, executor);
+    }
+
+    /**
+     * 直接以 Y 平面（YUV_420_888 的亮度平面）为输入，Y 值即查表下标，无需解码。
+     * 按 rowStride / pixelStride 读取，不要求平面紧密排列；只做绝对位置读取，不改变 yPlane 的位置。
+     */
+    public static void renderLuma(ByteBuffer yPlane, int rowStride, int pixelStride,
+                                  int width, int height, int rotationDegrees,
+                                  ColorMap colorMap, int[] dst, int dstStride,
+                                  LumaHistogram histogram, RowBandExecutor executor) {
+        final int[] map = destinationMapping(width, height, rotationDegrees, dst, dstStride);
+        final int base = map[0], dx = map[1], dy = map[2];
+        final int planeStart = yPlane.position();
+        final int rowBytes = (width - 1) * pixelStride + 1;   // 末行可能不含行尾填充
+
+        final int[] lut = colorMap.lut;
+        RowBandExecutor.RowKernel kernel = (rowStart, rowEnd) -> {
+            // 将本行带的 Y 数据一次性批量拷入局部数组，避免逐像素访问 ByteBuffer
+            int rows = rowEnd - rowStart;
+            byte[] band = new byte[(rows - 1) * rowStride + rowBytes];
+            ByteBuffer view = yPlane.duplicate();
+            view.position(planeStart + rowStart * rowStride);
+            view.get(band);
+
+            int[] bins = histogram != null ? new int[LumaHistogram.BINS] : null;
+            for (int x0 = 0; x0 < width; x0 += TILE) {
+                int x1 = Math.min(x0 + TILE, width);
+                for (int y = rowStart; y < rowEnd; y++) {
+                    int si = (y - rowStart) * rowStride + x0 * pixelStride;
+                    int di = base + x0 * dx + y * dy;
+                    if (bins != null) {
+                        for (int x = x0; x < x1; x++, si += pixelStride, di += dx) {
+                            int luma = band[si] & 0xFF;
+                            dst[di] = lut[luma];
+                            bins[luma]++;
+                        }
+                    } else {
+                        for (int x = x0; x < x1; x++, si += pixelStride, di += dx) {
+                            dst[di] = lut[band[si] & 0xFF];
+                        }
+                    }
+                }
+            }
+            if (bins != null) histogram.merge(bins);
+        };
+        run(kernel, height, executor);
+    }
+
+    /**
+     * 源坐标 (x, y) → 目标下标 base + x * dx + y * dy，返回 {base, dx, dy}
+     */
+    private static int[] destinationMapping(int width, int height, int rotationDegrees,
+                                            int[] dst, int dstStride) {
+        final int rotation = normalizeRotation(rotationDegrees);
+        final int rw = rotatedWidth(width, height, rotation);
+        final int rh = rotatedHeight(width, height, rotation);
+        if (dstStride < rw || dst.length < (rh - 1) * dstStride + rw) {
+            throw new IllegalArgumentException("dst too small for " + rw + "x" + rh);
+        }
+        switch (rotation) {
+            case 90:
+                return new int[]{height - 1, dstStride, -1};
+            case 180:
+                return new int[]{(height - 1) * dstStride + width - 1, -1, -dstStride};
+            case 270:
+                return new int[]{(width - 1) * dstStride, -dstStride, 1};
+            default:
+                return new int[]{0, 1, dstStride};
+        }
+    }
+
+    private static void run(RowBandExecutor.RowKernel kernel, int height, RowBandExecutor executor) {
+        if (executor != null) {
+            executor.forEach(height, kernel);
+        } else {
+            kernel.run(0, height);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.camera.imaging;
+
+/**
+ * 包围曝光的流式 HDR 合成：每到一帧立即按像素加权累加到浮点相对辐照度图
+ * 像素值先经 gamma 2.2 近似线性化，再除以该帧曝光量（ISO × 秒）得到相对辐照度；
+ * 权重为帽形函数，中间调权重最大，接近欠曝/过曝的像素几乎不参与。
+ * 内存峰值为一个累加器（每像素两个 float）加调用方的一帧像素，不保存各帧。
+ */
+public final class RadianceMerger {
+
+    // 中灰反射率，像素线性值为该值时视为测光中心
+    private static final double MID_GRAY = 0.18;
+    // 帽形权重的下限：所有帧都过曝或欠曝的像素仍能得到估计值
+    private static final float MIN_WEIGHT = 1e-4f;
+
+    private static final float[] LINEAR = new float[256];
+    private static final float[] WEIGHT = new float[256];
+
+    static {
+        for (int z = 0; z < 256; z++) {
+            // 0 不取真正的 0，避免对数映射时出现负无穷
+            LINEAR[z] = (float) Math.pow(Math.max(z, 0.5) / 255.0, 2.2);
+            float hat = (z <= 127 ? z : 255 - z) / 127f;
+            WEIGHT[z] = Math.max(MIN_WEIGHT, hat);
+        }
+    }
+
+    private final int width;
+    private final int height;
+    // 交错存放 {加权辐照度和, 权重和}；finish 后偶数位为辐照度
+    private final float[] accumulator;
+    private int frames;
+    private boolean finished;
+    private double minRadiance;
+    private double maxRadiance;
+
+    public RadianceMerger(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.accumulator = new float[width * height * 2];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /** 已合成的帧数 */
+    public int getFrameCount() {
+        return frames;
+    }
+
+    /**
+     * 累加一帧（ARGB，按 BT.601 取亮度）
+     * @param exposureScale 该帧的曝光量 ISO × 曝光时间（秒）
+     */
+    public void add(int[] argb, double exposureScale, RowBandExecutor executor) {
+        if (finished) throw new IllegalStateException("Merger already finished");
+        if (argb.length < width * height) throw new IllegalArgumentException("Frame too small");
+        final float inv = (float) (1.0 / exposureScale);
+        RowBandExecutor.RowKernel kernel = (rowStart, rowEnd) -> {
+            final float[] acc = accumulator;
+            for (int i = rowStart * width, end = rowEnd * width; i < end; i++) {
+                int z = LumaHistogram.luma(argb[i]);
+                float w = WEIGHT[z];
+                acc[2 * i] += w * LINEAR[z] * inv;
+                acc[2 * i + 1] += w;
+            }
+        };
+        if (executor != null) {
+            executor.forEach(height, kernel);
+        } else {
+            kernel.run(0, height);
+        }
+        frames++;
+    }
+
+    /**
+     * 结束累加，累加器转为每像素相对辐照度，并统计最小/最大值
+     */
+    public void finish() {
+        if (finished) return;
+        double lo = Double.MAX_VALUE, hi = 0;
+        final float[] acc = accumulator;
+        for (int i = 0, n = width * height; i < n; i++) {
+            float w = acc[2 * i + 1];
+            float radiance = w > 0 ? acc[2 * i] / w : 0f;
+            acc[2 * i] = radiance;
+            if (radiance > 0) {
+                if (radiance < lo) lo = radiance;
+                if (radiance > hi) hi = radiance;
+            }
+        }
+        if (hi == 0) lo = hi = 1;
+        minRadiance = lo;
+        maxRadiance = Math.max(hi, lo * 1.0001);
+        finished = true;
+    }
+
+    /** 像素 (x, y) 的相对辐照度，须先 finish */
+    public float radianceAt(int x, int y) {
+        checkFinished();
+        return accumulator[2 * (y * width + x)];
+    }
+
+    public double getMinRadiance() {
+        checkFinished();
+        return minRadiance;
+    }
+
+    public double getMaxRadiance() {
+        checkFinished();
+        return maxRadiance;
+    }
+
+    /**
+     * 对数色调映射：[最小, 最大] 辐照度的对数线性映射到 0 ~ 255，供伪彩色查表
+     */
+    public void toneMap(byte[] dst) {
+        checkFinished();
+        double logLo = Math.log(minRadiance);
+        double scale = 255.0 / (Math.log(maxRadiance) - logLo);
+        final float[] acc = accumulator;
+        for (int i = 0, n = width * height; i < n; i++) {
+            float radiance = acc[2 * i];
+            int v = radiance > 0 ? (int) Math.round((Math.log(radiance) - logLo) * scale) : 0;
+            dst[i] = (byte) Math.max(0, Math.min(255, v));
+        }
+    }
+
+    /** toneMap 后灰度 level（0 ~ 255）对应的相对辐照度 */
+    public double radianceAtLevel(double level) {
+        checkFinished();
+        double logLo = Math.log(minRadiance);
+        return Math.exp(logLo + (Math.log(maxRadiance) - logLo) * level / 255.0);
+    }
+
+    /**
+     * 相对辐照度对应的 BV：中灰像素在 (N, t, ISO) 下的 BV 即 APEX 的 Av + Tv − Sv，
+     * 辐照度每增加一倍 BV 加 1
+     */
+    public static float brightnessValue(double radiance, float aperture) {
+        if (radiance <= 0 || aperture <= 0) return Float.NaN;
+        return (float) (Math.log(aperture * aperture * 3.125 * radiance / MID_GRAY) / Math.log(2));
+    }
+
+    private void checkFinished() {
+        if (!finished) throw new IllegalStateException("Call finish() first");
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.camera.imaging;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 按行带并行处理整幅图像
+ * 将 [0, height) 递归拆分为不超过 bandRows 行的行带，交给 ForkJoinPool 在多核上执行。
+ * 每个像素只由一个行带处理，逐像素内核的结果与顺序执行逐位一致。
+ */
+public final class RowBandExecutor {
+
+    public static final int DEFAULT_BAND_ROWS = 64;
+
+    private static volatile RowBandExecutor defaultInstance;
+
+    /**
+     * 处理 [rowStart, rowEnd) 行的内核
+     */
+    public interface RowKernel {
+        void run(int rowStart, int rowEnd);
+    }
+
+    private final ForkJoinPool pool;
+    private volatile int bandRows;
+
+    public RowBandExecutor(int parallelism, int bandRows) {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+        setBandRows(bandRows);
+    }
+
+    /**
+     * 按设备 CPU 核数创建的共享实例
+     */
+    public static RowBandExecutor getDefault() {
+        if (defaultInstance == null) {
+            synchronized (RowBandExecutor.class) {
+                if (defaultInstance == null) {
+                    defaultInstance = new RowBandExecutor(
+                            Runtime.getRuntime().availableProcessors(), DEFAULT_BAND_ROWS);
+                }
+            }
+        }
+        return defaultInstance;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public int getBandRows() {
+        return bandRows;
+    }
+
+    /**
+     * 设置单个行带的最大行数（越小负载越均衡，越大调度开销越低）
+     */
+    public void setBandRows(int bandRows) {
+        if (bandRows < 1) {
+            throw new IllegalArgumentException("bandRows must be positive: " + bandRows);
+        }
+        this.bandRows = bandRows;
+    }
+
+    /**
+     * 对 [0, height) 全部行执行内核，阻塞直到所有行带完成
+     */
+    public void forEach(int height, RowKernel kernel) {
+        int band = bandRows;
+        if (height <= band || pool.getParallelism() == 1) {
+            kernel.run(0, height);
+            return;
+        }
+        pool.invoke(new BandTask(kernel, 0, height, band));
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static final class BandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RowKernel kernel;
+        private final int rowStart;
+        private final int rowEnd;
+        private final int bandRows;
+
+        BandTask(RowKernel kernel, int rowStart, int rowEnd, int bandRows) {
+            this.kernel = kernel;
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+            this.bandRows = bandRows;
+        }
+
+        @Override
+        protected void compute() {
+            int rows = rowEnd - rowStart;
+            if (rows <= bandRows) {
+                kernel.run(rowStart, rowEnd);
+                return;
+            }
+            // 按行带边界对半拆分
+            int mid = rowStart + (rows / bandRows / 2) * bandRows;
+            if (mid == rowStart) mid += bandRows;
+            invokeAll(new BandTask(kernel, rowStart, mid, bandRows),
+                    new BandTask(kernel, mid, rowEnd, bandRows));
+        }
+    }
+}
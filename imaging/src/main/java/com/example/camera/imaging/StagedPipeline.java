@@ -0,0 +1,266 @@
+package com.example.camera.imaging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分阶段异步处理流水线（如 解码 → 分析 → 渲染 → 编码 → 持久化）
+ * 每个阶段有独立的有界队列和工作线程数，队列满时按 OverflowPolicy 处理，
+ * 使第 N 张的写盘与第 N+1 张的处理重叠，又不会在连拍时无限堆积。
+ */
+public final class StagedPipeline<T> {
+
+    /** 阶段队列已满时的处理方式 */
+    public enum OverflowPolicy {
+        BLOCK,          // 阻塞提交方，直到队列有空位（反压传递到上游）
+        DROP_OLDEST,    // 丢弃队首最旧的任务，接收新任务
+        REJECT          // 拒绝新任务
+    }
+
+    /** 阶段处理函数；返回 false 表示任务到此结束，不再进入下一阶段 */
+    public interface Handler<T> {
+        boolean process(T job) throws Exception;
+    }
+
+    /** 任务被丢弃或处理失败时回调（在提交方或工作线程上），用于释放任务持有的资源 */
+    public interface Listener<T> {
+        void onDropped(String stage, T job);
+
+        /** 处理函数抛出异常或错误（包括 OutOfMemoryError），工作线程随后继续取下一个任务 */
+        void onFailed(String stage, T job, Throwable error);
+    }
+
+    private final List<Stage<T>> stages;
+    private final Listener<T> listener;
+    private volatile boolean shutdown;
+
+    private StagedPipeline(Builder<T> builder) {
+        this.listener = builder.listener;
+        this.stages = new ArrayList<>(builder.stages.size());
+        for (StageConfig<T> config : builder.stages) {
+            stages.add(new Stage<>(this, config, stages.size()));
+        }
+        for (Stage<T> stage : stages) stage.start();
+    }
+
+    /**
+     * 提交到第一个阶段
+     * @return false 表示任务被拒绝（REJECT）或流水线已关闭
+     */
+    public boolean submit(T job) {
+        return submit(stages.get(0).name, job);
+    }
+
+    /**
+     * 从指定阶段开始处理（跳过之前的阶段，例如已在别处完成渲染的任务）
+     */
+    public boolean submit(String stageName, T job) {
+        return stage(stageName).enqueue(job);
+    }
+
+    /**
+     * 不阻塞地提交到指定阶段：队列已满时无论该阶段的 OverflowPolicy 如何都立即丢弃新任务
+     * （按丢弃回调），供不能被下游反压卡住的线程（如相机分析器）使用
+     * @return false 表示任务已丢弃
+     */
+    public boolean offer(String stageName, T job) {
+        return stage(stageName).offer(job);
+    }
+
+    public int getQueuedCount(String stageName) {
+        return stage(stageName).queue.size();
+    }
+
+    public long getProcessedCount(String stageName) {
+        return stage(stageName).processed.get();
+    }
+
+    public long getDroppedCount(String stageName) {
+        return stage(stageName).dropped.get();
+    }
+
+    /**
+     * 停止所有工作线程；仍在队列中的任务按丢弃回调
+     */
+    public void shutdown() {
+        shutdown = true;
+        for (Stage<T> stage : stages) {
+            for (Thread worker : stage.workers) worker.interrupt();
+        }
+        for (Stage<T> stage : stages) {
+            T job;
+            while ((job = stage.queue.poll()) != null) stage.drop(job);
+        }
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    private Stage<T> stage(String name) {
+        for (Stage<T> stage : stages) {
+            if (stage.name.equals(name)) return stage;
+        }
+        throw new IllegalArgumentException("unknown stage: " + name);
+    }
+
+    // -------------------------------------------------------------------------
+    // 阶段
+    // -------------------------------------------------------------------------
+
+    private static final class Stage<T> {
+        final StagedPipeline<T> pipeline;
+        final String name;
+        final int index;
+        final OverflowPolicy policy;
+        final Handler<T> handler;
+        final BlockingQueue<T> queue;
+        final Thread[] workers;
+        final AtomicLong processed = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+
+        Stage(StagedPipeline<T> pipeline, StageConfig<T> config, int index) {
+            this.pipeline = pipeline;
+            this.name = config.name;
+            this.index = index;
+            this.policy = config.policy;
+            this.handler = config.handler;
+            this.queue = new ArrayBlockingQueue<>(config.capacity);
+            this.workers = new Thread[config.workers];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = new Thread(this::work, "pipeline-" + name + "-" + i);
+                workers[i].setDaemon(true);
+            }
+        }
+
+        void start() {
+            for (Thread worker : workers) worker.start();
+        }
+
+        boolean enqueue(T job) {
+            if (pipeline.shutdown) {
+                drop(job);
+                return false;
+            }
+            switch (policy) {
+                case BLOCK:
+                    try {
+                        queue.put(job);
+                        return true;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        drop(job);
+                        return false;
+                    }
+                case DROP_OLDEST:
+                    while (!queue.offer(job)) {
+                        T oldest = queue.poll();
+                        if (oldest != null) drop(oldest);
+                    }
+                    return true;
+                default:
+                    if (queue.offer(job)) return true;
+                    drop(job);
+                    return false;
+            }
+        }
+
+        boolean offer(T job) {
+            if (!pipeline.shutdown && queue.offer(job)) return true;
+            drop(job);
+            return false;
+        }
+
+        void drop(T job) {
+            dropped.incrementAndGet();
+            if (pipeline.listener != null) pipeline.listener.onDropped(name, job);
+        }
+
+        void fail(T job, Throwable error) {
+            if (pipeline.listener == null) return;
+            try {
+                pipeline.listener.onFailed(name, job, error);
+            } catch (Throwable ignored) {
+                // 回调自身失败时放弃该任务，保持工作线程存活
+            }
+        }
+
+        void work() {
+            while (!pipeline.shutdown) {
+                T job;
+                try {
+                    job = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                boolean forward;
+                try {
+                    forward = handler.process(job);
+                    processed.incrementAndGet();
+                } catch (Throwable t) {
+                    // 大图解码/渲染时的 OutOfMemoryError 也只让本任务失败，工作线程不能退出
+                    fail(job, t);
+                    continue;
+                }
+                if (forward && index + 1 < pipeline.stages.size()) {
+                    pipeline.stages.get(index + 1).enqueue(job);
+                }
+            }
+        }
+    }
+
+    private static final class StageConfig<T> {
+        final String name;
+        final int workers;
+        final int capacity;
+        final OverflowPolicy policy;
+        final Handler<T> handler;
+
+        StageConfig(String name, int workers, int capacity, OverflowPolicy policy, Handler<T> handler) {
+            this.name = name;
+            this.workers = workers;
+            this.capacity = capacity;
+            this.policy = policy;
+            this.handler = handler;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // 构建
+    // -------------------------------------------------------------------------
+
+    public static final class Builder<T> {
+        private final List<StageConfig<T>> stages = new ArrayList<>();
+        private Listener<T> listener;
+
+        /**
+         * 追加一个阶段，按添加顺序串联
+         * @param workers  工作线程数（≥ 1）
+         * @param capacity 队列容量（≥ 1，不含正在处理的任务）
+         */
+        public Builder<T> addStage(String name, int workers, int capacity,
+                                   OverflowPolicy policy, Handler<T> handler) {
+            if (workers < 1 || capacity < 1) {
+                throw new IllegalArgumentException("workers and capacity must be >= 1: " + name);
+            }
+            for (StageConfig<T> stage : stages) {
+                if (stage.name.equals(name)) throw new IllegalArgumentException("duplicate stage: " + name);
+            }
+            stages.add(new StageConfig<>(name, workers, capacity, policy, handler));
+            return this;
+        }
+
+        public Builder<T> setListener(Listener<T> listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        public StagedPipeline<T> build() {
+            if (stages.isEmpty()) throw new IllegalStateException("pipeline has no stages");
+            return new StagedPipeline<>(this);
+        }
+    }
+}
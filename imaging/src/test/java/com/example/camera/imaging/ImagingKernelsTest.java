@@ -0,0 +1,660 @@
+package com.example.camera.imaging;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 图像处理内核的 JVM 单元测试（无需 Android 设备）
+ */
+public class ImagingKernelsTest {
+
+    @Test
+    public void parseBrightnessValue_handlesRationalDecimalAndMissing() {
+        assertEquals(2.5f, Luminance.parseBrightnessValue("5/2"), 1e-6f);
+        assertEquals(-1.25f, Luminance.parseBrightnessValue("-1.25"), 1e-6f);
+        assertTrue(Float.isNaN(Luminance.parseBrightnessValue(null)));
+        assertTrue(Float.isNaN(Luminance.parseBrightnessValue("N/A")));
+        assertTrue(Float.isNaN(Luminance.parseBrightnessValue("读取失败")));
+        assertTrue(Float.isNaN(Luminance.parseBrightnessValue("abc")));
+    }
+
+    @Test
+    public void centerLuminance_usesFormulaOrGrayFallback() {
+        assertEquals(2.9, Luminance.fromBrightnessValue(0), 1e-9);
+        assertEquals(2.9 * Math.exp(0.729 * 3), Luminance.centerLuminance(3f, 0), 1e-9);
+        assertEquals(250.0, Luminance.centerLuminance(Float.NaN, 127.5), 1e-9);
+    }
+
+    @Test
+    public void render_rotatesAndAccumulatesHistogram() {
+        // 2 × 3 灰度图，按 90° 顺时针旋转后为 3 × 2
+        int width = 2, height = 3;
+        int[] src = new int[width * height];
+        for (int i = 0; i < src.length; i++) src[i] = gray(i * 40);
+
+        ColorMap colorMap = ColorMap.isolux();
+        int[] dst = new int[height * width];
+        LumaHistogram histogram = new LumaHistogram();
+        PseudoColorRenderer.render(src, width, height, 90, colorMap, dst, height, histogram, null);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int expected = colorMap.map(y * width * 40 + x * 40);
+                assertEquals(expected, dst[x * height + (height - 1 - y)]);
+            }
+        }
+        assertEquals(6, histogram.getTotal());
+        assertEquals(0, histogram.min());
+        assertEquals(200, histogram.max());
+        assertEquals(100.0, histogram.mean(), 1e-9);
+    }
+
+    @Test
+    public void renderLuma_matchesArgbRenderInParallel() {
+        int width = 37, height = 150, rowStride = 40;
+        ByteBuffer yPlane = ByteBuffer.allocate(rowStride * height);
+        int[] argb = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int v = (x * 7 + y * 3) & 0xFF;
+                yPlane.put(y * rowStride + x, (byte) v);
+                argb[y * width + x] = gray(v);
+            }
+        }
+
+        ColorMap colorMap = ColorMap.isolux();
+        RowBandExecutor executor = new RowBandExecutor(4, 16);
+        try {
+            for (int rotation = 0; rotation < 360; rotation += 90) {
+                int[] expected = new int[width * height];
+                int[] actual = new int[width * height];
+                int stride = PseudoColorRenderer.rotatedWidth(width, height, rotation);
+                LumaHistogram h1 = new LumaHistogram();
+                LumaHistogram h2 = new LumaHistogram();
+                PseudoColorRenderer.render(argb, width, height, rotation, colorMap, expected, stride, h1, null);
+                PseudoColorRenderer.renderLuma(yPlane, rowStride, 1, width, height, rotation, colorMap,
+                        actual, stride, h2, executor);
+                assertArrayEquals(expected, actual);
+                assertEquals(h1.median(), h2.median());
+                assertEquals(h1.getTotal(), h2.getTotal());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(0, yPlane.position());
+    }
+
+    @Test
+    public void colorMaps_haveExpectedEndpointsAndRgbaLayout() {
+        assertEquals(0xFF000000, ColorMap.isolux().map(0));
+        assertEquals(0xFFFF0000, ColorMap.isolux().map(255));
+        assertEquals(0xFF808080, ColorMap.grayscale().map(128));
+        assertEquals(0xFF000080, ColorMap.jet().map(0));
+        assertEquals(0xFF800000, ColorMap.jet().map(255));
+
+        ColorMap turbo = ColorMap.turbo();
+        byte[] rgba = turbo.toRgbaBytes();
+        assertEquals(ColorMap.LUT_SIZE * 4, rgba.length);
+        int c = turbo.map(100);
+        assertEquals((c >> 16) & 0xFF, rgba[400] & 0xFF);
+        assertEquals((c >> 8) & 0xFF, rgba[401] & 0xFF);
+        assertEquals(c & 0xFF, rgba[402] & 0xFF);
+        assertEquals(0xFF, rgba[403] & 0xFF);
+    }
+
+    @Test
+    public void legendAnnotation_usesLuminanceRowOrBrightnessFormula() {
+        LumaHistogram histogram = new LumaHistogram();
+        int[] counts = new int[LumaHistogram.BINS];
+        counts[51] = 1;
+        counts[204] = 1;
+        histogram.merge(counts);
+
+        // 无亮度表：以 BV 计算中心亮度，±25% 均分
+        LegendAnnotation formula = LegendAnnotation.create(histogram, "3", 4, null, null);
+        double center = Luminance.fromBrightnessValue(3);
+        assertEquals(4, formula.getLevels());
+        assertEquals(center * 0.75, formula.getThreshold(0), 1e-9);
+        assertEquals(center * 1.25, formula.getThreshold(4), 1e-9);
+        String[] lines = formula.getStatisticsLines();
+        assertEquals(4, lines.length);
+        assertEquals("BV = 3", lines[2]);
+        assertEquals(Luminance.describe(3f), lines[3]);
+
+        // 有亮度表：分段边界按灰度查表，平均亮度逐灰度加权
+        float[] row = new float[LumaHistogram.BINS];
+        for (int z = 0; z < row.length; z++) row[z] = z * 2f;
+        LegendAnnotation table = LegendAnnotation.create(histogram, "N/A", 5, row, "HDR");
+        assertEquals(0, table.getThreshold(0), 0);
+        assertEquals(102, table.getThreshold(1), 0);
+        assertEquals(510, table.getThreshold(5), 0);
+        assertArrayEquals(new String[]{"L", String.format("%.2f", 102.0), "↓", String.format("%.2f", 204.0)},
+                table.labelLines(1));
+        assertEquals(Luminance.describeMean(255, "HDR"), table.getStatisticsLines()[3]);
+    }
+
+    @Test
+    public void percentile_returnsFirstBinReachingRank() {
+        LumaHistogram histogram = new LumaHistogram();
+        int[] counts = new int[LumaHistogram.BINS];
+        counts[10] = 5;
+        counts[20] = 5;
+        histogram.merge(counts);
+        assertEquals(10, histogram.percentile(50));
+        assertEquals(20, histogram.percentile(51));
+        assertEquals(10, histogram.median());
+        assertEquals(-1, new LumaHistogram().median());
+    }
+
+    @Test
+    public void autoExposure_convergesOnSimulatedSceneAndPrefersShortExposure() {
+        // ISO 100 ~ 3200，曝光 10 µs ~ 200 ms，优先不超过 1/60 s
+        AutoExposureController ae = new AutoExposureController(100, 3200, 10_000L, 200_000_000L, 16_666_667L);
+        ae.setTarget(118, AutoExposureController.METRIC_MEAN);
+        double sceneGain = 0.002;   // 昏暗场景：线性亮度 = 总曝光量 × sceneGain / 1e6
+        AutoExposureController.Result r = null;
+        for (int i = 0; i < 60 && ae.getState() != AutoExposureController.State.SETTLED; i++) {
+            double linear = Math.min(1, ae.getIso() * (double) ae.getExposureNs() * sceneGain / 1e6 / 255);
+            r = ae.update(255 * Math.pow(linear, 1 / 2.2));
+        }
+        assertEquals(AutoExposureController.State.SETTLED, r.state);
+        assertFalse(r.changed);
+        assertEquals(16_666_667L, r.exposureNs);
+        assertTrue(r.iso > 100);
+
+        // 过亮且已在下限：报告 LIMITED
+        ae.reset(100, 10_000L);
+        assertEquals(AutoExposureController.State.LIMITED, ae.update(255).state);
+    }
+
+    @Test
+    public void autoExposure_ignoresEmptyHistogramAndInvalidMeasurements() {
+        AutoExposureController controller = new AutoExposureController(50, 3200,
+                100_000L, 500_000_000L, 16_666_667L);
+        controller.reset(400, 10_000_000L);
+        AutoExposureController.Result searching = controller.update(10);
+        assertTrue(searching.changed);
+        int iso = controller.getIso();
+        long exposureNs = controller.getExposureNs();
+
+        // 空直方图：mean 为 NaN、percentile 为 -1，均不应驱动参数
+        LumaHistogram empty = new LumaHistogram();
+        controller.setTarget(118, AutoExposureController.METRIC_MEAN);
+        controller.reset(iso, exposureNs);
+        assertResultUnchanged(controller.update(empty), iso, exposureNs);
+        controller.setTarget(118, 95);
+        assertResultUnchanged(controller.update(empty), iso, exposureNs);
+
+        for (double measured : new double[]{Double.NaN, Double.POSITIVE_INFINITY, -1}) {
+            assertResultUnchanged(controller.update(measured), iso, exposureNs);
+        }
+        assertEquals(AutoExposureController.State.SEARCHING, controller.getState());
+    }
+
+    @Test
+    public void autoExposureLoop_reportsChangesAndStateTransitionsOnce() {
+        List<String> events = new ArrayList<>();
+        AutoExposureLoop loop = new AutoExposureLoop(100, 3200, 10_000L, 200_000_000L,
+                new RecordingExposureListener(events));
+        loop.reset(100, 1_000_000L);
+
+        // 下发后的下一次测光来自旧参数，丢弃
+        loop.onMetered(new LumaHistogram());
+        assertTrue(events.isEmpty());
+        loop.onMetered(singleBin(20));
+        loop.onMetered(singleBin(20));
+        assertEquals(Arrays.asList("changed", "SEARCHING"), events);
+        loop.onMetered(singleBin(20));
+        assertEquals(Arrays.asList("changed", "SEARCHING", "changed"), events);
+
+        // 命中目标后只报告状态变化；reset 后重新报告
+        events.clear();
+        loop.onMetered(singleBin((int) AutoExposureLoop.TARGET_LUMA));
+        loop.onMetered(singleBin((int) AutoExposureLoop.TARGET_LUMA));
+        loop.onMetered(singleBin((int) AutoExposureLoop.TARGET_LUMA));
+        assertEquals(Collections.singletonList("CONVERGED"), events);
+        loop.reset(100, 1_000_000L);
+        loop.onMetered(singleBin((int) AutoExposureLoop.TARGET_LUMA));
+        assertEquals(Arrays.asList("CONVERGED", "CONVERGED"), events);
+        assertEquals("收敛", AutoExposureLoop.describe(AutoExposureController.State.CONVERGED));
+    }
+
+    @Test
+    public void autoExposureLoop_waitsUntilParametersAreApplied() {
+        List<String> events = new ArrayList<>();
+        AutoExposureLoop loop = new AutoExposureLoop(100, 3200, 10_000L, 200_000_000L,
+                new RecordingExposureListener(events));
+        boolean[] applied = {false};
+        List<Long> probed = new ArrayList<>();
+        loop.setExposureProbe((iso, exposureNs) -> {
+            probed.add(exposureNs);
+            return applied[0];
+        });
+        loop.reset(100, 1_000_000L);
+        loop.onMetered(singleBin(20));
+        assertEquals(Arrays.asList("changed", "SEARCHING"), events);
+
+        // 参数未生效：不调节
+        for (int i = 0; i < 3; i++) loop.onMetered(singleBin(20));
+        assertEquals(2, events.size());
+        assertEquals(3, probed.size());
+        assertTrue(probed.get(0) > 1_000_000L);
+
+        // 生效后再丢弃一次测光
+        applied[0] = true;
+        loop.onMetered(singleBin(20));
+        assertEquals(2, events.size());
+        loop.onMetered(singleBin(20));
+        assertEquals(3, events.size());
+
+        // 一直不生效时最多等待 MAX_SETTLE_METERINGS 次
+        applied[0] = false;
+        for (int i = 0; i < AutoExposureLoop.MAX_SETTLE_METERINGS; i++) loop.onMetered(singleBin(20));
+        assertEquals(3, events.size());
+        loop.onMetered(singleBin(20));
+        assertEquals(4, events.size());
+
+        // reset 取消等待
+        loop.reset(100, 1_000_000L);
+        loop.onMetered(singleBin(20));
+        assertEquals(Arrays.asList("changed", "SEARCHING"), events.subList(4, 6));
+    }
+
+    @Test
+    public void captureMetadataRing_findsNearestFrameAndComputesApexBv() {
+        CaptureMetadataRing ring = new CaptureMetadataRing(3);
+        assertEquals(4, ring.capacity());
+        CaptureMetadataRing.Frame frame = new CaptureMetadataRing.Frame();
+        assertFalse(ring.latest(frame));
+
+        // 写入 6 帧（33 ms 间隔），最早的 2 帧被覆盖
+        for (int i = 0; i < 6; i++) {
+            ring.put(1_000_000_000L + i * 33_000_000L, 100 * (i + 1), 10_000_000L, 2.0f, 0f, 0);
+        }
+        assertTrue(ring.get(1_000_000_000L + 4 * 33_000_000L, 0, frame));
+        assertEquals(500, frame.getIso());
+        assertTrue(ring.get(1_000_000_000L + 3 * 33_000_000L + 5_000_000L, 10_000_000L, frame));
+        assertEquals(400, frame.getIso());
+        assertFalse(ring.get(1_000_000_000L, 10_000_000L, frame));
+        assertTrue(ring.latest(frame));
+        assertEquals(600, frame.getIso());
+
+        // f/2、1/100 s、ISO 100：Av 2 + Tv 6.64 − Sv 5
+        assertEquals(3.644f, Luminance.brightnessValue(2.0f, 10_000_000L, 100), 1e-3f);
+        assertTrue(Float.isNaN(Luminance.brightnessValue(0f, 10_000_000L, 100)));
+    }
+
+    @Test
+    public void radianceMerger_recoversRatiosBeyondSingleFrameRange() {
+        ExposureBracket bracket = ExposureBracket.plan(100, 1600, 100_000L, 1_000_000_000L, 100_000_000L, 5);
+        assertEquals(5, bracket.size());
+        assertEquals(100, bracket.getIso(0));
+        assertEquals(100_000L, bracket.getExposureNs(0));
+        assertEquals(1600, bracket.getIso(4));
+        assertEquals(100_000_000L, bracket.getExposureNs(4));
+        for (int i = 1; i < bracket.size(); i++) {
+            assertTrue(bracket.getEv(i) > bracket.getEv(i - 1));
+        }
+
+        // 4 个像素的场景辐照度跨约 14 EV，单帧无法同时不过曝、不欠曝
+        double[] scene = {0.005, 0.1, 5, 60};
+        RadianceMerger merger = new RadianceMerger(2, 2);
+        int[] frame = new int[4];
+        for (int f = 0; f < bracket.size(); f++) {
+            double scale = bracket.getIso(f) * (bracket.getExposureNs(f) / 1e9);
+            for (int i = 0; i < 4; i++) {
+                double linear = Math.min(1, scene[i] * scale);
+                frame[i] = gray((int) Math.round(255 * Math.pow(linear, 1 / 2.2)));
+            }
+            merger.add(frame, scale, null);
+        }
+        merger.finish();
+        assertEquals(5, merger.getFrameCount());
+        for (int i = 1; i < 4; i++) {
+            double ratio = merger.radianceAt(i % 2, i / 2) / merger.radianceAt(0, 0);
+            assertEquals(scene[i] / scene[0], ratio, scene[i] / scene[0] * 0.1);
+        }
+
+        byte[] tone = new byte[4];
+        merger.toneMap(tone);
+        assertEquals(0, tone[0] & 0xFF);
+        assertEquals(255, tone[3] & 0xFF);
+        assertEquals(merger.getMaxRadiance(), merger.radianceAtLevel(255), merger.getMaxRadiance() * 1e-9);
+        // 中灰：f/2、1/100 s、ISO 100 的辐照度对应 APEX BV
+        assertEquals(Luminance.brightnessValue(2f, 10_000_000L, 100),
+                RadianceMerger.brightnessValue(0.18 / (100 * 0.01), 2f), 1e-4f);
+    }
+
+    @Test
+    public void luminanceCalibration_interpolatesDenseGridFromReferencePoints() throws IOException {
+        // 模拟设备：L = 50 × (z/255)^2.2 / (ISO × t)，在 ISO 100 / 1/100 s 与 ISO 400 / 1/50 s 两组曝光下实测
+        StringBuilder csv = new StringBuilder("# pixel,iso,exposure_ns,cd/m2\n");
+        int[][] exposures = {{100, 10_000_000}, {400, 20_000_000}};
+        for (int[] e : exposures) {
+            for (int z = 16; z <= 240; z += 32) {
+                double l = 50 * Math.pow(z / 255.0, 2.2) / (e[0] * (e[1] / 1e9));
+                csv.append(z).append(',').append(e[0]).append(',').append(e[1]).append(',').append(l).append('\n');
+            }
+        }
+        LuminanceCalibration calibration = LuminanceCalibration.parse("sim", new StringReader(csv.toString()));
+        assertEquals("sim", calibration.getName());
+
+        // 两组之间（ISO 200 / 1/50 s）与插值像素值 100 处仍与模型一致
+        float[] row = calibration.luminanceRow(200, 20_000_000L, null);
+        for (int z : new int[]{20, 100, 200}) {
+            double expected = 50 * Math.pow(z / 255.0, 2.2) / (200 * 0.02);
+            assertEquals(expected, row[z], expected * 0.05);
+        }
+        for (int z = 1; z < 256; z++) assertTrue(row[z] >= row[z - 1]);
+
+        double[] thresholds = LegendRenderer.thresholds(row, 5);
+        assertEquals(6, thresholds.length);
+        assertEquals(row[0], thresholds[0], 0);
+        assertEquals(row[255], thresholds[5], 0);
+
+        LumaHistogram histogram = new LumaHistogram();
+        int[] counts = new int[LumaHistogram.BINS];
+        counts[100] = 3;
+        counts[200] = 1;
+        histogram.merge(counts);
+        assertEquals((3.0 * row[100] + row[200]) / 4, histogram.mean(row), 1e-3);
+
+        try {
+            LuminanceCalibration.parse("bad", new StringReader("10,100\n"));
+            fail("expected IOException");
+        } catch (IOException expected) {
+            // 字段不足
+        }
+    }
+
+    @Test
+    public void stagedPipeline_forwardsInOrderAndStopsWhenHandlerReturnsFalse() throws Exception {
+        List<Integer> reached = Collections.synchronizedList(new ArrayList<>());
+        Semaphore done = new Semaphore(0);
+        StagedPipeline<Integer> pipeline = new StagedPipeline.Builder<Integer>()
+                .addStage("a", 1, 4, StagedPipeline.OverflowPolicy.BLOCK, job -> job % 2 == 0)
+                .addStage("b", 1, 4, StagedPipeline.OverflowPolicy.BLOCK, job -> {
+                    reached.add(job);
+                    done.release();
+                    return true;
+                })
+                .build();
+        try {
+            for (int i = 0; i < 6; i++) assertTrue(pipeline.submit(i));
+            assertTrue(done.tryAcquire(3, 5, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList(0, 2, 4), reached);
+            // 可跳过前面的阶段直接进入 b
+            assertTrue(pipeline.submit("b", 9));
+            assertTrue(done.tryAcquire(5, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList(0, 2, 4, 9), reached);
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    public void stagedPipeline_appliesOverflowPolicyWhenQueueIsFull() throws Exception {
+        // DROP_OLDEST：队首最旧的任务被丢弃
+        GatedStage dropOldest = new GatedStage(StagedPipeline.OverflowPolicy.DROP_OLDEST, 2);
+        assertTrue(dropOldest.pipeline.submit(4));
+        assertEquals(Collections.singletonList("dropped:s:2"), dropOldest.events);
+        assertEquals(Arrays.asList(1, 3, 4), dropOldest.finish(3));
+
+        // REJECT：新任务被拒绝
+        GatedStage reject = new GatedStage(StagedPipeline.OverflowPolicy.REJECT, 2);
+        assertFalse(reject.pipeline.submit(4));
+        assertEquals(Collections.singletonList("dropped:s:4"), reject.events);
+        assertEquals(1, reject.pipeline.getDroppedCount("s"));
+        assertEquals(Arrays.asList(1, 2, 3), reject.finish(3));
+
+        // BLOCK：提交方等待空位；offer 不等待，直接丢弃
+        GatedStage block = new GatedStage(StagedPipeline.OverflowPolicy.BLOCK, 2);
+        assertFalse(block.pipeline.offer("s", 5));
+        assertEquals(Collections.singletonList("dropped:s:5"), block.events);
+        Thread submitter = new Thread(() -> block.pipeline.submit(4));
+        submitter.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (submitter.getState() != Thread.State.WAITING && System.nanoTime() < deadline) Thread.sleep(1);
+        assertEquals(Thread.State.WAITING, submitter.getState());
+        assertEquals(Arrays.asList(1, 2, 3, 4), block.finish(4));
+        submitter.join(5000);
+        assertFalse(submitter.isAlive());
+    }
+
+    @Test
+    public void stagedPipeline_reportsErrorsAndDropsQueuedJobsOnShutdown() throws Exception {
+        // 处理函数抛出 Error 后工作线程仍继续处理后续任务
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch second = new CountDownLatch(1);
+        StagedPipeline<Integer> failing = new StagedPipeline.Builder<Integer>()
+                .addStage("s", 1, 4, StagedPipeline.OverflowPolicy.BLOCK, job -> {
+                    if (job == 1) throw new OutOfMemoryError("decode");
+                    second.countDown();
+                    return true;
+                })
+                .setListener(new RecordingListener(events))
+                .build();
+        failing.submit(1);
+        failing.submit(2);
+        assertTrue(second.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("failed:s:1:OutOfMemoryError"), events);
+        failing.shutdown();
+
+        // 关闭时队列中的任务按提交顺序回调丢弃，正在处理的任务被中断后按失败回调
+        GatedStage gated = new GatedStage(StagedPipeline.OverflowPolicy.BLOCK, 2);
+        gated.pipeline.shutdown();
+        assertTrue(gated.pipeline.isShutdown());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (gated.events.size() < 3 && System.nanoTime() < deadline) Thread.sleep(1);
+        assertTrue(gated.events.containsAll(Arrays.asList(
+                "dropped:s:2", "dropped:s:3", "failed:s:1:InterruptedException")));
+        assertTrue(gated.events.indexOf("dropped:s:2") < gated.events.indexOf("dropped:s:3"));
+        assertFalse(gated.pipeline.submit(4));
+        assertEquals("dropped:s:4", gated.events.get(gated.events.size() - 1));
+        assertTrue(gated.processed.isEmpty());
+    }
+
+    @Test
+    public void latestValueChannel_coalescesWhileInFlight() {
+        RecordingSender sender = new RecordingSender();
+        LatestValueChannel<Integer> channel = new LatestValueChannel<>(Runnable::run);
+        channel.setSender(sender);
+        List<Boolean> idle = new ArrayList<>();
+
+        channel.submit(1);
+        channel.submit(2);
+        channel.submit(3);
+        channel.runWhenIdle(idle::add);
+        assertEquals(Collections.singletonList(1), sender.values);
+        assertTrue(idle.isEmpty());
+
+        // 在途请求完成后只下发最新值，全部完成后才执行空闲动作
+        sender.complete(true);
+        assertEquals(Arrays.asList(1, 3), sender.values);
+        assertTrue(idle.isEmpty());
+        sender.complete(true);
+        assertEquals(Collections.singletonList(true), idle);
+        assertTrue(channel.isIdle());
+        assertEquals(3, channel.getSubmittedCount());
+        assertEquals(2, channel.getSentCount());
+        assertEquals(1, channel.getCoalescedCount());
+        assertEquals(0, channel.getFailedCount());
+    }
+
+    @Test
+    public void latestValueChannel_neverStrandsIdleActions() {
+        List<Boolean> idle = new ArrayList<>();
+
+        // 没有下发目标：空闲动作立即以未生效结束，值保留到设置目标后下发
+        LatestValueChannel<Integer> unbound = new LatestValueChannel<>(Runnable::run);
+        unbound.submit(1);
+        unbound.runWhenIdle(idle::add);
+        assertEquals(Collections.singletonList(false), idle);
+        assertFalse(unbound.isIdle());
+        RecordingSender sender = new RecordingSender();
+        unbound.setSender(sender);
+        assertEquals(Collections.singletonList(1), sender.values);
+
+        // 在途期间目标被移除：完成后等待中的值无法下发，空闲动作仍然执行
+        idle.clear();
+        unbound.submit(2);
+        unbound.runWhenIdle(idle::add);
+        unbound.setSender(null);
+        sender.complete(true);
+        assertEquals(Collections.singletonList(false), idle);
+
+        // 下发时抛出异常：排队的空闲动作以未生效结束
+        idle.clear();
+        RecordingSender throwing = new RecordingSender();
+        LatestValueChannel<Integer> channel = new LatestValueChannel<>(Runnable::run);
+        channel.setSender(throwing);
+        channel.submit(1);
+        channel.runWhenIdle(idle::add);
+        channel.submit(2);
+        throwing.failNext = true;
+        throwing.complete(true);
+        assertEquals(Collections.singletonList(false), idle);
+        assertTrue(channel.isIdle());
+        assertEquals(1, channel.getFailedCount());
+
+        // 空闲时下发失败，之后的空闲动作立即以未生效执行
+        idle.clear();
+        throwing.failNext = true;
+        channel.submit(3);
+        channel.runWhenIdle(idle::add);
+        assertEquals(Collections.singletonList(false), idle);
+
+        // 请求完成但未生效
+        idle.clear();
+        channel.submit(4);
+        channel.runWhenIdle(idle::add);
+        throwing.complete(false);
+        assertEquals(Collections.singletonList(false), idle);
+        assertEquals(3, channel.getFailedCount());
+    }
+
+    /** 单阶段单线程流水线：任务 1 在处理中被闸门挡住，任务 2、3 填满队列 */
+    private static final class GatedStage {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch gate = new CountDownLatch(1);
+        final List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        final StagedPipeline<Integer> pipeline;
+
+        GatedStage(StagedPipeline.OverflowPolicy policy, int capacity) throws InterruptedException {
+            pipeline = new StagedPipeline.Builder<Integer>()
+                    .addStage("s", 1, capacity, policy, job -> {
+                        started.countDown();
+                        gate.await();
+                        processed.add(job);
+                        return true;
+                    })
+                    .setListener(new RecordingListener(events))
+                    .build();
+            pipeline.submit(1);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            for (int job = 2; job < 2 + capacity; job++) assertTrue(pipeline.submit(job));
+            assertEquals(capacity, pipeline.getQueuedCount("s"));
+        }
+
+        /** 打开闸门，等待处理完 expected 个任务后关闭流水线 */
+        List<Integer> finish(int expected) throws InterruptedException {
+            gate.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (processed.size() < expected && System.nanoTime() < deadline) Thread.sleep(1);
+            pipeline.shutdown();
+            return new ArrayList<>(processed);
+        }
+    }
+
+    private static final class RecordingListener implements StagedPipeline.Listener<Integer> {
+        private final List<String> events;
+
+        RecordingListener(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void onDropped(String stage, Integer job) {
+            events.add("dropped:" + stage + ":" + job);
+        }
+
+        @Override
+        public void onFailed(String stage, Integer job, Throwable error) {
+            events.add("failed:" + stage + ":" + job + ":" + error.getClass().getSimpleName());
+        }
+    }
+
+    /** 记录下发的值，由测试手动完成在途请求；failNext 时下一次下发抛出异常 */
+    private static final class RecordingSender implements LatestValueChannel.Sender<Integer> {
+        final List<Integer> values = new ArrayList<>();
+        LatestValueChannel.Completion inFlight;
+        boolean failNext;
+
+        @Override
+        public void send(Integer value, LatestValueChannel.Completion completion) {
+            if (failNext) {
+                failNext = false;
+                throw new IllegalStateException("camera closed");
+            }
+            values.add(value);
+            inFlight = completion;
+        }
+
+        void complete(boolean success) {
+            LatestValueChannel.Completion completion = inFlight;
+            inFlight = null;
+            completion.onComplete(success);
+        }
+    }
+
+    private static void assertResultUnchanged(AutoExposureController.Result result, int iso, long exposureNs) {
+        assertFalse(result.changed);
+        assertEquals(AutoExposureController.State.SEARCHING, result.state);
+        assertEquals(iso, result.iso);
+        assertEquals(exposureNs, result.exposureNs);
+    }
+
+    private static final class RecordingExposureListener implements AutoExposureLoop.Listener {
+        private final List<String> events;
+
+        RecordingExposureListener(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void onExposureChanged(AutoExposureController.Result result) {
+            events.add("changed");
+        }
+
+        @Override
+        public void onStateChanged(AutoExposureController.Result result) {
+            events.add(result.state.name());
+        }
+    }
+
+    /** 全部像素落在同一灰度的直方图 */
+    private static LumaHistogram singleBin(int luma) {
+        int[] counts = new int[256];
+        counts[luma] = 100;
+        LumaHistogram histogram = new LumaHistogram();
+        histogram.merge(counts);
+        return histogram;
+    }
+
+    private static int gray(int v) {
+        return 0xFF000000 | (v << 16) | (v << 8) | v;
+    }
+}